@@ -0,0 +1,98 @@
+import java.util.*;
+
+// Goal-directed variant of Dijkstra: vertices are settled in order of
+// dist + estimate(v, end). With an admissible heuristic the path is still a
+// shortest one, but the search stays close to the line towards end.
+public class AStar<V> {
+    public interface Heuristic {
+        // Lower bound on the distance from v to target
+        double estimate(int v, int target);
+    }
+
+    private final CsrGraph<V> graph;
+    private int settledCount;
+
+    public AStar(WeightedGraph<V> graph) {
+        this(CsrGraph.fromWeighted(graph));
+    }
+
+    public AStar(CsrGraph<V> graph) {
+        this.graph = graph;
+    }
+
+    // mode = "time" for shortest travel time, "cost" for cheapest route
+    public List<V> getPath(V start, V end, String mode, Heuristic heuristic) {
+        int n = graph.getSize();
+        int startIndex = graph.getIndex(start);
+        int endIndex = graph.getIndex(end);
+        settledCount = 0;
+
+        if (startIndex == -1 || endIndex == -1) return Collections.emptyList();
+
+        double[] dist = new double[n];
+        int[] prev = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+
+        double[] weights = graph.getWeights(mode);
+        dist[startIndex] = 0;
+
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        heap.offer(startIndex, heuristic.estimate(startIndex, endIndex));
+
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settledCount++;
+            if (u == endIndex) break;
+
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.getTarget(e);
+                double d = dist[u] + weights[e];
+                if (d < dist[v]) {
+                    dist[v] = d;
+                    prev[v] = u;
+                    heap.offer(v, d + heuristic.estimate(v, endIndex));
+                }
+            }
+        }
+
+        if (dist[endIndex] == Double.POSITIVE_INFINITY) return Collections.emptyList();
+
+        List<V> path = new ArrayList<>();
+        for (int at = endIndex; at != -1; at = prev[at]) {
+            path.add(graph.getVertex(at));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // Number of vertices taken off the queue by the last getPath call
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    // Straight-line distance times the smallest weight per unit of distance
+    // over all edges. No edge is cheaper than that rate, so neither is any path.
+    public static Heuristic euclidean(CsrGraph<?> graph, double[][] positions, String mode) {
+        if (positions.length < graph.getSize()) {
+            throw new IllegalArgumentException("Expected a position for each of the " + graph.getSize() + " vertices");
+        }
+
+        double[] weights = graph.getWeights(mode);
+        double rate = Double.POSITIVE_INFINITY;
+        for (int u = 0; u < graph.getSize(); u++) {
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                double length = distance(positions, u, graph.getTarget(e));
+                if (length > 0) rate = Math.min(rate, weights[e] / length);
+            }
+        }
+        if (rate == Double.POSITIVE_INFINITY) rate = 0; // no usable edge, fall back to plain Dijkstra
+
+        double scale = rate * (1 - 1e-9); // keep rounding in rate * length from overestimating
+        return (v, target) -> scale * distance(positions, v, target);
+    }
+
+    private static double distance(double[][] positions, int a, int b) {
+        return Math.hypot(positions[a][0] - positions[b][0], positions[a][1] - positions[b][1]);
+    }
+}
@@ -2,17 +2,29 @@ import java.util.*;
 
 
 public abstract class AbstractGraph<V> implements Graph<V> {
-    protected List<V> vertices = new ArrayList<>();
+    protected final VertexIndex<V> vertices = new VertexIndex<>();
     protected List<List<Integer>> neighbours = new ArrayList<>();
+    // same contents as neighbours, for the duplicate check in addEdge
+    protected List<NeighbourSet> neighbourSets = new ArrayList<>();
+    // sources of the edges into each vertex, so removeVertex only touches
+    // the vertices next to the removed one
+    protected List<List<Integer>> inNeighbours = new ArrayList<>();
+    private long edits; // changes made to this graph
+
+    protected AbstractGraph() {
+    }
 
     public AbstractGraph(V[] vertices, int[][] edges) {
         for (V v : vertices) {
             this.vertices.add(v);
-            neighbours.add(new ArrayList<>());
-        }
-        for (int[] e : edges) {
-            addEdge(e[0], e[1]);
         }
+        addEdges(edges);
+    }
+
+    // Number of changes made through clear, addVertex, addEdge, removeEdge
+    // and removeVertex since the graph was built
+    public long getEditCount() {
+        return edits;
     }
 
     @Override
@@ -22,7 +34,7 @@ public abstract class AbstractGraph<V> implements Graph<V> {
     
     @Override
     public List<V> getVertices() {
-        return vertices; 
+        return vertices.asList();
     }
 
     @Override
@@ -35,6 +47,22 @@ public abstract class AbstractGraph<V> implements Graph<V> {
         return vertices.indexOf(v);
     }
 
+    // Index of the first vertex whose name matches ignoring case, or -1
+    public int getIndexIgnoreCase(String name) {
+        return vertices.indexOfIgnoreCase(name);
+    }
+
+    // Id given to the vertex when it was added; unlike its index it does
+    // not change when other vertices are removed
+    public int getId(int index) {
+        return vertices.getId(index);
+    }
+
+    // Current index of the vertex with this id, or -1 if it was removed
+    public int getIndexOfId(int id) {
+        return vertices.indexOfId(id);
+    }
+
     @Override
     public List<Integer> getNeighbours(int index) {
         return neighbours.get(index);
@@ -60,6 +88,9 @@ public abstract class AbstractGraph<V> implements Graph<V> {
     public void clear() {
         vertices.clear();
         neighbours.clear();
+        neighbourSets.clear();
+        inNeighbours.clear();
+        edits++;
     }
 
     @Override
@@ -67,6 +98,9 @@ public abstract class AbstractGraph<V> implements Graph<V> {
         if (!vertices.contains(v)) {
             vertices.add(v);
             neighbours.add(new ArrayList<>());
+            neighbourSets.add(new NeighbourSet());
+            inNeighbours.add(new ArrayList<>());
+            edits++;
             return true;
         }
         return false;
@@ -75,13 +109,126 @@ public abstract class AbstractGraph<V> implements Graph<V> {
     @Override
     public boolean addEdge(int u, int v) {
         if (u < 0 || u >= getSize() || v < 0 || v >= getSize()) return false;
-        if (!neighbours.get(u).contains(v)) {
+        if (neighbourSets.get(u).add(v)) {
             neighbours.get(u).add(v);
+            inNeighbours.get(v).add(u);
+            edits++;
             return true;
         }
         return false;
     }
 
+    @Override
+    public boolean removeEdge(int u, int v) {
+        if (u < 0 || u >= getSize() || v < 0 || v >= getSize()) return false;
+        if (!neighbourSets.get(u).remove(v)) return false;
+        neighbours.get(u).remove(Integer.valueOf(v));
+        inNeighbours.get(v).remove(Integer.valueOf(u));
+        edits++;
+        return true;
+    }
+
+    // Removes vertex v and its edges, then moves the last vertex into index v
+    // (swap-with-last), so the cost depends on the degrees of v and of the
+    // last vertex rather than on the size of the graph. Only the last
+    // vertex's index changes; getId is the same before and after.
+    @Override
+    public boolean removeVertex(int v) {
+        if (v < 0 || v >= getSize()) return false;
+        edits++;
+        for (int w : neighbours.get(v)) {
+            if (w != v) inNeighbours.get(w).remove(Integer.valueOf(v));
+        }
+        for (int p : inNeighbours.get(v)) {
+            if (p != v) {
+                neighbours.get(p).remove(Integer.valueOf(v));
+                neighbourSets.get(p).remove(v);
+            }
+        }
+
+        int last = vertices.remove(v);
+        neighbours.set(v, neighbours.get(last));
+        neighbourSets.set(v, neighbourSets.get(last));
+        inNeighbours.set(v, inNeighbours.get(last));
+        neighbours.remove(last);
+        neighbourSets.remove(last);
+        inNeighbours.remove(last);
+        if (v == last) return true;
+
+        // renumber last to v in the lists that mention it
+        List<Integer> out = neighbours.get(v);
+        for (int i = 0; i < out.size(); i++) {
+            int w = out.get(i);
+            if (w == last) {
+                out.set(i, v);
+                neighbourSets.get(v).remove(last);
+                neighbourSets.get(v).add(v);
+                w = v;
+            }
+            renumber(inNeighbours.get(w), last, v);
+        }
+        for (int p : inNeighbours.get(v)) {
+            if (p != v) {
+                renumber(neighbours.get(p), last, v);
+                neighbourSets.get(p).remove(last);
+                neighbourSets.get(p).add(v);
+            }
+        }
+        return true;
+    }
+
+    private static void renumber(List<Integer> list, int from, int to) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == from) list.set(i, to);
+        }
+    }
+
+    // Bulk version of addEdge for the constructor, O(V + E): edges are
+    // bucketed by source with a counting sort, keeping their given order,
+    // and repeats are dropped with a stamp per target. Out-of-range edges are
+    // skipped, as addEdge would.
+    private void addEdges(int[][] edges) {
+        int n = getSize();
+        int[] start = new int[n + 1];
+        for (int[] e : edges) {
+            if (inRange(e[0], e[1], n)) start[e[0] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            start[u + 1] += start[u];
+        }
+        int[] targets = new int[start[n]];
+        int[] fill = Arrays.copyOf(start, n);
+        for (int[] e : edges) {
+            if (inRange(e[0], e[1], n)) targets[fill[e[0]]++] = e[1];
+        }
+
+        int[] seenBy = new int[n]; // u + 1 once v is a neighbour of u
+        for (int v = 0; v < n; v++) {
+            inNeighbours.add(new ArrayList<>());
+        }
+        for (int u = 0; u < n; u++) {
+            int distinct = start[u];
+            for (int i = start[u]; i < start[u + 1]; i++) {
+                int v = targets[i];
+                if (seenBy[v] != u + 1) {
+                    seenBy[v] = u + 1;
+                    targets[distinct++] = v;
+                }
+            }
+            List<Integer> adjacent = new ArrayList<>(distinct - start[u]);
+            for (int i = start[u]; i < distinct; i++) {
+                adjacent.add(targets[i]);
+                inNeighbours.get(targets[i]).add(u);
+            }
+            neighbours.add(adjacent);
+            neighbourSets.add(new NeighbourSet(targets, start[u], distinct));
+        }
+    }
+
+    private static boolean inRange(int u, int v, int n) {
+        return u >= 0 && u < n && v >= 0 && v < n;
+    }
+
     public class Tree {
         private int root;
         private int[] parent;
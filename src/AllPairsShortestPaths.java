@@ -0,0 +1,261 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Distances and next hops between every pair of vertices, for both metrics.
+// Row i of each n * n table belongs to origin i, so the table for origin i
+// and destination j sits at i * n + j. A route is then read hop by hop in
+// O(path length) with no search.
+public class AllPairsShortestPaths<V> {
+    private static final int MAGIC = 0x41505350; // "APSP"
+    private static final int VERSION = 1;
+    // origins per fork-join leaf task
+    private static final int ORIGINS_PER_TASK = 8;
+
+    private final CsrGraph<V> graph;
+    private final int n;
+    private final double[] time;
+    private final double[] cost;
+    private final int[] nextTime; // vertex after i on the fastest route to j, -1 if none
+    private final int[] nextCost; // vertex after i on the cheapest route to j, -1 if none
+
+    private AllPairsShortestPaths(CsrGraph<V> graph, double[] time, double[] cost, int[] nextTime, int[] nextCost) {
+        this.graph = graph;
+        this.n = graph.getSize();
+        this.time = time;
+        this.cost = cost;
+        this.nextTime = nextTime;
+        this.nextCost = nextCost;
+    }
+
+    public static <V> AllPairsShortestPaths<V> compute(WeightedGraph<V> graph) {
+        return compute(CsrGraph.fromWeighted(graph));
+    }
+
+    // One single-source search per origin and metric, spread over the common fork-join pool
+    public static <V> AllPairsShortestPaths<V> compute(CsrGraph<V> graph) {
+        int n = graph.getSize();
+        int cells = checkedCells(n);
+        AllPairsShortestPaths<V> result = new AllPairsShortestPaths<>(graph,
+                new double[cells], new double[cells], new int[cells], new int[cells]);
+        ForkJoinPool.commonPool().invoke(result.new Rows(0, n));
+        return result;
+    }
+
+    // mode = "time" for shortest travel time, "cost" for cheapest route
+    public List<V> getPath(V start, V end, String mode) {
+        int startIndex = graph.getIndex(start);
+        int endIndex = graph.getIndex(end);
+
+        if (startIndex == -1 || endIndex == -1) return Collections.emptyList();
+        if (startIndex == endIndex) return Collections.singletonList(start);
+
+        int[] next = mode.equals("time") ? nextTime : nextCost;
+        if (next[startIndex * n + endIndex] == -1) return Collections.emptyList();
+
+        List<V> path = new ArrayList<>();
+        for (int at = startIndex; at != endIndex; at = next[at * n + endIndex]) {
+            path.add(graph.getVertex(at));
+        }
+        path.add(end);
+        return path;
+    }
+
+    // Infinity if end cannot be reached from start or either is unknown
+    public double getDistance(V start, V end, String mode) {
+        int startIndex = graph.getIndex(start);
+        int endIndex = graph.getIndex(end);
+
+        if (startIndex == -1 || endIndex == -1) return Double.POSITIVE_INFINITY;
+        return (mode.equals("time") ? time : cost)[startIndex * n + endIndex];
+    }
+
+    // Layout: magic, version, n, then n vertex names (length + UTF-8 bytes),
+    // then the time, cost, nextTime and nextCost tables, all big-endian
+    public void save(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n);
+            for (int i = 0; i < n; i++) {
+                byte[] name = String.valueOf(graph.getVertex(i)).getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 4 + name.length) {
+                    drain(channel, buffer);
+                    if (buffer.capacity() < 4 + name.length) buffer = ByteBuffer.allocate(4 + name.length);
+                }
+                buffer.putInt(name.length).put(name);
+            }
+            drain(channel, buffer);
+
+            writeDoubles(channel, buffer, time);
+            writeDoubles(channel, buffer, cost);
+            writeInts(channel, buffer, nextTime);
+            writeInts(channel, buffer, nextCost);
+        }
+    }
+
+    // The file must have been saved from a graph with the same vertices in the same order
+    public static <V> AllPairsShortestPaths<V> load(File file, CsrGraph<V> graph) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            fill(channel, header);
+            if (header.getInt() != MAGIC) throw new IOException("Not an all-pairs file: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported all-pairs file version " + version);
+            int n = header.getInt();
+            if (n != graph.getSize()) {
+                throw new IOException("File has " + n + " vertices but the graph has " + graph.getSize());
+            }
+
+            ByteBuffer length = ByteBuffer.allocate(4);
+            for (int i = 0; i < n; i++) {
+                length.clear();
+                fill(channel, length);
+                ByteBuffer name = ByteBuffer.allocate(length.getInt());
+                fill(channel, name);
+                String saved = new String(name.array(), StandardCharsets.UTF_8);
+                if (!saved.equals(String.valueOf(graph.getVertex(i)))) {
+                    throw new IOException("Vertex " + i + " is '" + saved + "' in the file but '" + graph.getVertex(i) + "' in the graph");
+                }
+            }
+
+            int cells = checkedCells(n);
+            double[] time = readDoubles(channel, cells);
+            double[] cost = readDoubles(channel, cells);
+            int[] nextTime = readInts(channel, cells);
+            int[] nextCost = readInts(channel, cells);
+            return new AllPairsShortestPaths<>(graph, time, cost, nextTime, nextCost);
+        }
+    }
+
+    private static int checkedCells(int n) {
+        long cells = (long) n * n;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many vertices for an all-pairs table: " + n);
+        }
+        return (int) cells;
+    }
+
+    // Fills rows lo .. hi - 1, splitting until a task is small enough
+    private class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+
+        Rows(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > ORIGINS_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Rows(lo, mid), new Rows(mid, hi));
+                return;
+            }
+
+            // scratch shared by the origins of this task only
+            double[] dist = new double[n];
+            int[] first = new int[n];
+            IndexedMinHeap heap = new IndexedMinHeap(n);
+            for (int source = lo; source < hi; source++) {
+                search(source, graph.getWeights("time"), dist, first, heap);
+                System.arraycopy(dist, 0, time, source * n, n);
+                System.arraycopy(first, 0, nextTime, source * n, n);
+
+                search(source, graph.getWeights("cost"), dist, first, heap);
+                System.arraycopy(dist, 0, cost, source * n, n);
+                System.arraycopy(first, 0, nextCost, source * n, n);
+            }
+        }
+
+        // Dijkstra from source that records, for each vertex, the first hop
+        // taken from source to reach it. The predecessor of a vertex is
+        // settled before it, so its first hop is already known.
+        private void search(int source, double[] weights, double[] dist, int[] first, IndexedMinHeap heap) {
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            Arrays.fill(first, -1);
+            dist[source] = 0;
+            heap.offer(source, 0);
+
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int v = graph.getTarget(e);
+                    double d = dist[u] + weights[e];
+                    if (d < dist[v]) {
+                        dist[v] = d;
+                        first[v] = u == source ? v : first[u];
+                        heap.offer(v, d);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) throw new EOFException("All-pairs file is truncated");
+        }
+        buffer.flip();
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        int chunk = buffer.capacity() / Double.BYTES;
+        for (int i = 0; i < values.length; i += chunk) {
+            int count = Math.min(chunk, values.length - i);
+            buffer.asDoubleBuffer().put(values, i, count);
+            buffer.position(count * Double.BYTES);
+            drain(channel, buffer);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int chunk = buffer.capacity() / Integer.BYTES;
+        for (int i = 0; i < values.length; i += chunk) {
+            int count = Math.min(chunk, values.length - i);
+            buffer.asIntBuffer().put(values, i, count);
+            buffer.position(count * Integer.BYTES);
+            drain(channel, buffer);
+        }
+    }
+
+    private static double[] readDoubles(FileChannel channel, int count) throws IOException {
+        double[] values = new double[count];
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        int chunk = buffer.capacity() / Double.BYTES;
+        for (int i = 0; i < count; i += chunk) {
+            buffer.clear().limit(Math.min(chunk, count - i) * Double.BYTES);
+            fill(channel, buffer);
+            buffer.asDoubleBuffer().get(values, i, buffer.remaining() / Double.BYTES);
+        }
+        return values;
+    }
+
+    private static int[] readInts(FileChannel channel, int count) throws IOException {
+        int[] values = new int[count];
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        int chunk = buffer.capacity() / Integer.BYTES;
+        for (int i = 0; i < count; i += chunk) {
+            buffer.clear().limit(Math.min(chunk, count - i) * Integer.BYTES);
+            fill(channel, buffer);
+            buffer.asIntBuffer().get(values, i, buffer.remaining() / Integer.BYTES);
+        }
+        return values;
+    }
+}
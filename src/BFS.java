@@ -16,25 +16,57 @@ import javafx.geometry.Insets;
 
 import java.util.*;
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 public class BFS extends Application {
 
     private static final String AIRPORTS_FILE = "src\\resources\\airports.txt";
     private static final String EDGES_FILE = "src\\resources\\edges.txt";
     private static final String POSITIONS_FILE = "src\\resources\\positions.txt";
-
-    private static String[] vertices;
-    private static int[][] edges;
-    private static double[][] cityPositions;
+    // The text files above are only read when they are newer than the
+    // snapshot. Edits made here go to the change log, which is replayed on
+    // top of the snapshot at startup and folded into it once it grows past
+    // COMPACT_BYTES. The snapshot alternates with SNAPSHOT_FILE + ".1".
+    private static final String SNAPSHOT_FILE = "src\\resources\\graph.snapshot";
+    private static final String CHANGE_LOG_FILE = "src\\resources\\changes.log";
+    private static final long COMPACT_BYTES = 1 << 20;
+    private static final int ROUTE_CACHE_SIZE = 256;
+    private static final int HOT_ORIGINS = 8;
+    private static final int RECENT_ORIGINS = 64;
+
+    // airports and routes with [time, cost]; removing an airport moves the
+    // last airport into its index, and cityPositions follows suit
+    private static WeightedGraph<String> network;
+    private static List<double[]> cityPositions;
+    private static ChangeLog changeLog;
+    // routing works on a CSR copy of network, rebuilt only after it changes
+    private static CsrGraph<String> routingGraph;
+    private static long routingVersion;
+    private static final RouteCache<String> routeCache = new RouteCache<>(ROUTE_CACHE_SIZE);
+    // shortest paths from the origins asked about most recently, keyed by
+    // airport id and mode, and repaired after each route edit
+    private static final Map<Long, DynamicShortestPaths<String>> hotOrigins =
+            new LinkedHashMap<Long, DynamicShortestPaths<String>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, DynamicShortestPaths<String>> eldest) {
+                    return size() > HOT_ORIGINS;
+                }
+            };
+    // origins asked about once lately; asking again makes them hot
+    private static final Set<Long> recentOrigins = Collections.newSetFromMap(
+            new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    return size() > RECENT_ORIGINS;
+                }
+            });
 
     private static List<Integer> shortestPath = new ArrayList<>();
     private static String startCity = "";
     private static String endCity = "";
 
-    private static double[][] edgeWeights; // [time, cost] for each edge
-    private static String[][] edgeLabels; // Added: to store "50min, RM120" for each edge
-
     private Stage primaryStage;
     private BorderPane root;
     private Pane graphPane;
@@ -47,11 +79,85 @@ public class BFS extends Application {
             loadDataFromFiles();
             showMainMenu();
         } catch (IOException e) {
-            showErrorScreen("Failed to load data files. Please make sure airports.txt, edges.txt, and positions.txt are in this directory.");
+            showErrorScreen("Failed to load data files. Please make sure airports.txt, edges.txt, and positions.txt are in this directory.\n" + e.getMessage());
+        }
+    }
+
+    // Folds this session's edits into the text files and snapshot on exit
+    @Override
+    public void stop() {
+        if (changeLog == null) return;
+        if (!changeLog.isEmpty()) tryCompactChanges();
+        try {
+            changeLog.close();
+        } catch (IOException e) {
+            System.out.println("Error closing " + CHANGE_LOG_FILE + ": " + e.getMessage());
         }
     }
 
     private void loadDataFromFiles() throws IOException {
+        if (changeLog != null) {
+            changeLog.close();
+            changeLog = null;
+        }
+
+        File snapshot = GraphSnapshot.latest(new File(SNAPSHOT_FILE));
+        GraphSnapshot.deleteStale(new File(SNAPSHOT_FILE));
+        File log = new File(CHANGE_LOG_FILE);
+        GraphSnapshot opened = null;
+        String problem = "missing";
+        if (snapshot.isFile()) {
+            try {
+                opened = GraphSnapshot.open(snapshot);
+                problem = "older than the text files";
+            } catch (IOException e) {
+                problem = "unreadable (" + e.getMessage() + ")";
+            }
+        }
+
+        long sequence;
+        if (opened != null && GraphSnapshot.isFresh(snapshot, new File(AIRPORTS_FILE), new File(EDGES_FILE), new File(POSITIONS_FILE))) {
+            loadSnapshot(opened);
+            sequence = opened.getSequence();
+        } else {
+            // Logged edits apply to the snapshot, not to the text files; if any
+            // are not folded into the text files yet, loading those would lose them
+            sequence = opened != null ? opened.getSequence() : 0;
+            int unsaved = ChangeLog.countAfter(log, sequence);
+            if (unsaved > 0) {
+                throw new IOException(unsaved + " unsaved edit(s) in " + log + " belong to " + snapshot + ", which is "
+                        + problem + ". Restore the snapshot to keep them, or move " + log + " away to discard them.");
+            }
+            loadTextFiles();
+            GraphSnapshot.writeNext(new File(SNAPSHOT_FILE), routingGraph(), cityPositions.toArray(new double[0][]), sequence);
+        }
+
+        changeLog = ChangeLog.open(log, sequence, new ChangeLog.Handler() {
+            @Override
+            public void addVertex(String name, double x, double y) {
+                applyAddAirport(name, x, y);
+            }
+
+            @Override
+            public void removeVertex(int v) {
+                applyRemoveAirport(v);
+            }
+
+            @Override
+            public void addEdge(int from, int to, double time, double cost) {
+                network.addEdge(from, to, time, cost);
+            }
+
+            @Override
+            public void removeEdge(int from, int to) {
+                network.removeEdge(from, to);
+            }
+        });
+        // edits left over from a session that did not close cleanly
+        if (!changeLog.isEmpty()) tryCompactChanges();
+    }
+
+    private void loadTextFiles() throws IOException {
         // Load airports
         List<String> vertexList = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(AIRPORTS_FILE))) {
@@ -60,38 +166,18 @@ public class BFS extends Application {
                 if (!line.trim().isEmpty()) vertexList.add(line.trim());
             }
         }
-        vertices = vertexList.toArray(new String[0]);
+        network = new WeightedGraph<>(vertexList.toArray(new String[0]));
+        int n = network.getSize();
 
-        // Load edges with time and cost
-        List<int[]> edgeList = new ArrayList<>();
-        List<double[]> edgeWeightList = new ArrayList<>(); // [time, cost]
-        try (BufferedReader reader = new BufferedReader(new FileReader(EDGES_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 4) { // expecting: from,to,time,cost
-                        int from = Integer.parseInt(parts[0].trim());
-                        int to = Integer.parseInt(parts[1].trim());
-                        int time = Integer.parseInt(parts[2].trim());
-                        int cost = Integer.parseInt(parts[3].trim());
-                        edgeList.add(new int[]{from, to});
-                        edgeWeightList.add(new double[]{time, cost});
-                    }
-                }
+        // Load edges with time and cost; lines are from,to,time,cost and the weights may have decimals
+        EdgeList edgeList = EdgeList.read(new File(EDGES_FILE), true);
+        for (int i = 0; i < edgeList.size(); i++) {
+            int from = edgeList.getFrom(i);
+            int to = edgeList.getTo(i);
+            if (from < 0 || from >= n || to < 0 || to >= n) {
+                throw new IOException("Route " + from + " -> " + to + " refers to an airport that does not exist.");
             }
-        }
-        edges = edgeList.toArray(new int[0][]);
-        edgeWeights = edgeWeightList.toArray(new double[0][]); // save weights for later
-
-        // Initialize edgeLabels array and fill it
-        edgeLabels = new String[vertices.length][vertices.length]; // Added
-        for (int i = 0; i < edgeList.size(); i++) { // Added
-            int from = edgeList.get(i)[0];
-            int to = edgeList.get(i)[1];
-            double time = edgeWeights[i][0];
-            double cost = edgeWeights[i][1];
-            edgeLabels[from][to] = (int) time + "min, RM" + (int) cost; // Added
+            network.addEdge(from, to, edgeList.getTime(i), edgeList.getCost(i));
         }
 
         // Load positions
@@ -109,13 +195,27 @@ public class BFS extends Application {
                 }
             }
         }
-        cityPositions = positionList.toArray(new double[0][]);
+        cityPositions = positionList;
 
-        if (vertices.length != cityPositions.length) {
+        if (n != cityPositions.size()) {
             throw new IOException("Mismatch between number of airports and positions.");
         }
     }
 
+    private void loadSnapshot(GraphSnapshot snapshot) throws IOException {
+        CsrGraph<String> graph = snapshot.getGraph();
+        if (snapshot.getPositions() == null) {
+            throw new IOException("Snapshot has no airport positions.");
+        }
+        network = new WeightedGraph<>(graph.getVertices().toArray(new String[0]));
+        for (int from = 0; from < graph.getSize(); from++) {
+            for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+                network.addEdge(from, graph.getTarget(e), graph.getTime(e), graph.getCost(e));
+            }
+        }
+        cityPositions = new ArrayList<>(Arrays.asList(snapshot.getPositions()));
+    }
+
     private void showErrorScreen(String message) {
         root = new BorderPane();
         VBox errorBox = new VBox(20);
@@ -220,7 +320,7 @@ public class BFS extends Application {
         System.out.print("Enter destination city: ");
         endCity = scanner.nextLine();
 
-        Graph<String> graph = new UnweightedGraph<>(vertices, edges);
+        CsrGraph<String> graph = routingGraph();
         int start = graph.getIndex(startCity);
         int end = graph.getIndex(endCity);
 
@@ -229,7 +329,7 @@ public class BFS extends Application {
             return;
         }
 
-        AbstractGraph<String>.Tree bfsTree = graph.bfs(start);
+        AbstractGraph<String>.Tree bfsTree = graph.parallelBfs(start);
 
         List<Integer> path = new ArrayList<>();
         int current = end;
@@ -258,18 +358,6 @@ public class BFS extends Application {
         System.out.print("Enter destination city: ");
         endCity = scanner.nextLine();
 
-        // Build weighted graph using both time and cost
-        WeightedGraph<String> graph = new WeightedGraph<>(vertices);
-        for (int i = 0; i < edges.length; i++) {
-            int from = edges[i][0];
-            int to = edges[i][1];
-            double time = edgeWeights[i][0]; // time in minutes
-            double cost = edgeWeights[i][1]; // cost in RM
-            graph.addEdge(from, to, time, cost); // updated addEdge
-        }
-
-        Dijkstra<String> dijkstra = new Dijkstra<>(graph);
-
         // Ask user which mode they want
         System.out.print("Calculate shortest route by 'time' or 'cost'? ");
         String mode = scanner.nextLine().trim().toLowerCase();
@@ -278,7 +366,20 @@ public class BFS extends Application {
             mode = "time";
         }
 
-        List<String> path = dijkstra.getPath(startCity, endCity, mode);
+        CsrGraph<String> csr = routingGraph();
+        int start = csr.getIndex(startCity);
+        int end = csr.getIndex(endCity);
+        if (start == -1 || end == -1) {
+            System.out.println("Invalid city name or no route found.");
+            return;
+        }
+
+        Route<String> route = routeCache.get(startCity, endCity, mode, routingVersion);
+        if (route == null) {
+            route = findRoute(csr, start, end, mode);
+            routeCache.put(startCity, endCity, mode, routingVersion, route);
+        }
+        List<String> path = route.getPath();
 
         if (path.isEmpty()) {
             System.out.println("Invalid city name or no route found.");
@@ -287,7 +388,7 @@ public class BFS extends Application {
 
         shortestPath.clear();
         for (String city : path) {
-            shortestPath.add(graph.getIndex(city));
+            shortestPath.add(csr.getIndex(city));
         }
 
         System.out.println("\n" + (mode.equals("time") ? "Fastest" : "Cheapest") +
@@ -297,6 +398,62 @@ public class BFS extends Application {
             if (i != path.size() - 1) System.out.print(" -> ");
         }
         System.out.println();
+        System.out.println("Total: " + formatAmount(route.getTime()) + "min, RM" + formatAmount(route.getCost()));
+    }
+
+    private static CsrGraph<String> routingGraph() {
+        if (routingGraph == null || routingVersion != network.getVersion()) {
+            routingGraph = CsrGraph.fromWeighted(network);
+            routingVersion = network.getVersion();
+        }
+        return routingGraph;
+    }
+
+    // The first question from an origin is answered by A*, which settles
+    // only the airports towards the destination. Once an origin is asked
+    // about again, its paths to everywhere are kept and repaired as routes
+    // change, so later questions from there need no search.
+    private static Route<String> findRoute(CsrGraph<String> csr, int start, int end, String mode) {
+        long key = (long) network.getId(start) << 1 | (mode.equals("time") ? 0 : 1);
+        DynamicShortestPaths<String> paths = hotOrigins.get(key);
+        if (paths == null && !recentOrigins.add(key)) {
+            recentOrigins.remove(key);
+            paths = new DynamicShortestPaths<>(network, network.getVertex(start), mode);
+            hotOrigins.put(key, paths);
+        }
+        if (paths != null) return paths.getRoute(end);
+
+        AStar<String> aStar = new AStar<>(csr);
+        List<String> found = aStar.getPath(csr.getVertex(start), csr.getVertex(end), mode,
+                AStar.euclidean(csr, cityPositions.toArray(new double[0][]), mode));
+        return toRoute(csr, found, mode);
+    }
+
+    // Totals along path, taking the edge the search would have used where
+    // two airports have more than one route between them
+    private static Route<String> toRoute(CsrGraph<String> graph, List<String> path, String mode) {
+        double[] weights = graph.getWeights(mode);
+        double time = 0;
+        double cost = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            int u = graph.getIndex(path.get(i));
+            int v = graph.getIndex(path.get(i + 1));
+            int best = -1;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                if (graph.getTarget(e) == v && (best == -1 || weights[e] < weights[best])) best = e;
+            }
+            time += graph.getTime(best);
+            cost += graph.getCost(best);
+        }
+        return new Route<>(path, time, cost);
+    }
+
+    // Call after each edit to the routes from -> to; airport edits need no
+    // call, the paths notice those themselves and search again
+    private static void routeChanged(int from, int to) {
+        for (DynamicShortestPaths<String> paths : hotOrigins.values()) {
+            paths.update(from, to);
+        }
     }
 
     private void addNewAirport() {
@@ -322,24 +479,15 @@ public class BFS extends Application {
             }
         }
 
-        String[] newVertices = Arrays.copyOf(vertices, vertices.length + 1);
-        newVertices[vertices.length] = airportName;
-        vertices = newVertices;
-
-        double[][] newPositions = Arrays.copyOf(cityPositions, cityPositions.length + 1);
-        newPositions[cityPositions.length] = new double[]{x, y};
-        cityPositions = newPositions;
-
-        String[][] newEdgeLabels = new String[vertices.length][vertices.length];
-        for (int i = 0; i < edgeLabels.length; i++) {
-            for (int j = 0; j < edgeLabels[i].length; j++) {
-                newEdgeLabels[i][j] = edgeLabels[i][j];
-            }
+        if (network.getIndex(airportName) != -1) {
+            System.out.println("Airport '" + airportName + "' already exists.");
+            return;
         }
-        edgeLabels = newEdgeLabels;
+        applyAddAirport(airportName, x, y);
 
         try {
-            saveDataToFiles();
+            changeLog.addVertex(airportName, x, y);
+            commitChanges();
             System.out.println("Airport '" + airportName + "' added successfully at (" + x + ", " + y + ")");
         } catch (IOException e) {
             System.out.println("Error saving data: " + e.getMessage());
@@ -354,73 +502,20 @@ public class BFS extends Application {
         String airportName = scanner.nextLine().trim();
 
         // Step 1: Find the index of the airport
-        int removeIndex = -1;
-        for (int i = 0; i < vertices.length; i++) {
-            if (vertices[i].equalsIgnoreCase(airportName)) {
-                removeIndex = i;
-                break;
-            }
-        }
+        int removeIndex = network.getIndexIgnoreCase(airportName);
 
         if (removeIndex == -1) {
             System.out.println("Airport not found.");
             return;
         }
 
-        // Step 2: Remove the airport from vertices
-        String[] newVertices = new String[vertices.length - 1];
-        for (int i = 0, j = 0; i < vertices.length; i++) {
-            if (i != removeIndex) {
-                newVertices[j++] = vertices[i];
-            }
-        }
-        vertices = newVertices;
+        // Step 2: Remove the airport and its routes; the last airport takes its index
+        applyRemoveAirport(removeIndex);
 
-        // Step 3: Remove from cityPositions
-        double[][] newPositions = new double[cityPositions.length - 1][2];
-        for (int i = 0, j = 0; i < cityPositions.length; i++) {
-            if (i != removeIndex) {
-                newPositions[j++] = cityPositions[i];
-            }
-        }
-        cityPositions = newPositions;
-
-        // Step 4: Remove associated edges
-        List<int[]> newEdgeList = new ArrayList<>();
-        List<double[]> newEdgeWeightList = new ArrayList<>();
-
-        for (int i = 0; i < edges.length; i++) {
-            int from = edges[i][0];
-            int to = edges[i][1];
-
-            // Skip any edge that involves the removed airport
-            if (from == removeIndex || to == removeIndex) continue;
-
-            // Adjust indices if needed
-            if (from > removeIndex) from--;
-            if (to > removeIndex) to--;
-
-            newEdgeList.add(new int[]{from, to});
-            newEdgeWeightList.add(edgeWeights[i]);
-        }
-
-        edges = newEdgeList.toArray(new int[0][]);
-        edgeWeights = newEdgeWeightList.toArray(new double[0][]);
-
-        // Step 5: Update edgeLabels matrix
-        edgeLabels = new String[vertices.length][vertices.length];
-        for (int i = 0; i < edges.length; i++) {
-            int from = edges[i][0];
-            int to = edges[i][1];
-            double time = edgeWeights[i][0];
-            double cost = edgeWeights[i][1];
-            edgeLabels[from][to] = (int) time + "min, RM" + (int) cost;
-        }
-
-        // Step 6: Save updated data to files
+        // Step 3: Log the change
         try {
-            saveDataToFiles();
-            saveEdgesToFile();  // Save the edges with updated routes
+            changeLog.removeVertex(removeIndex);
+            commitChanges();
             System.out.println("Airport '" + airportName + "' has been removed successfully.");
         } catch (IOException e) {
             System.out.println("Error saving updated data: " + e.getMessage());
@@ -441,15 +536,8 @@ public class BFS extends Application {
         String destinationAirport = scanner.nextLine().trim();
 
         // Validate airports
-        int sourceIndex = -1, destinationIndex = -1;
-        for (int i = 0; i < vertices.length; i++) {
-            if (vertices[i].equalsIgnoreCase(sourceAirport)) {
-                sourceIndex = i;
-            }
-            if (vertices[i].equalsIgnoreCase(destinationAirport)) {
-                destinationIndex = i;
-            }
-        }
+        int sourceIndex = network.getIndexIgnoreCase(sourceAirport);
+        int destinationIndex = network.getIndexIgnoreCase(destinationAirport);
 
         if (sourceIndex == -1 || destinationIndex == -1) {
             System.out.println("Error: One or both airport names are invalid.");
@@ -484,20 +572,13 @@ public class BFS extends Application {
         }
 
         // Step 3: Add edge to memory
-        List<int[]> edgeList = new ArrayList<>(Arrays.asList(edges));
-        edgeList.add(new int[]{sourceIndex, destinationIndex});
-        edges = edgeList.toArray(new int[0][]);
-
-        List<double[]> edgeWeightList = new ArrayList<>(Arrays.asList(edgeWeights));
-        edgeWeightList.add(new double[]{time, cost});
-        edgeWeights = edgeWeightList.toArray(new double[0][]);
+        network.addEdge(sourceIndex, destinationIndex, time, cost);
+        routeChanged(sourceIndex, destinationIndex);
 
-        // Update edgeLabels
-        edgeLabels[sourceIndex][destinationIndex] = time + "min, RM" + cost;
-
-        // Step 4: Save data back to edges.txt
+        // Step 4: Log the change
         try {
-            saveEdgesToFile();
+            changeLog.addEdge(sourceIndex, destinationIndex, time, cost);
+            commitChanges();
             System.out.println("Flight route added successfully: " +
                     sourceAirport + " -> " + destinationAirport +
                     " (" + time + "min, RM" + cost + ")");
@@ -520,56 +601,26 @@ public class BFS extends Application {
         String destinationAirport = scanner.nextLine().trim();
 
         // Step 2: Validate airport names
-        int sourceIndex = -1, destinationIndex = -1;
-        for (int i = 0; i < vertices.length; i++) {
-            if (vertices[i].equalsIgnoreCase(sourceAirport)) {
-                sourceIndex = i;
-            }
-            if (vertices[i].equalsIgnoreCase(destinationAirport)) {
-                destinationIndex = i;
-            }
-        }
+        int sourceIndex = network.getIndexIgnoreCase(sourceAirport);
+        int destinationIndex = network.getIndexIgnoreCase(destinationAirport);
 
         if (sourceIndex == -1 || destinationIndex == -1) {
             System.out.println("Error: One or both airport names are invalid.");
             return;
         }
 
-        // Step 3: Search for the edge to remove
-        List<int[]> updatedEdges = new ArrayList<>();
-        List<double[]> updatedWeights = new ArrayList<>();
-        boolean edgeFound = false;
-
-        for (int i = 0; i < edges.length; i++) {
-            int from = edges[i][0];
-            int to = edges[i][1];
-
-            // Skip the edge we want to remove
-            if (from == sourceIndex && to == destinationIndex) {
-                edgeFound = true;
-                continue;
-            }
-
-            updatedEdges.add(edges[i]);
-            updatedWeights.add(edgeWeights[i]);
-        }
-
-        if (!edgeFound) {
+        // Step 3: Remove the edge
+        if (!network.removeEdge(sourceIndex, destinationIndex)) {
             System.out.println("Error: No flight route found between " +
                     sourceAirport + " and " + destinationAirport + ".");
             return;
         }
+        routeChanged(sourceIndex, destinationIndex);
 
-        // Step 4: Update in-memory data
-        edges = updatedEdges.toArray(new int[0][]);
-        edgeWeights = updatedWeights.toArray(new double[0][]);
-
-        // Update edgeLabels matrix
-        edgeLabels[sourceIndex][destinationIndex] = null;
-
-        // Step 5: Save changes to file
+        // Step 4: Log the change
         try {
-            saveEdgesToFile();
+            changeLog.removeEdge(sourceIndex, destinationIndex);
+            commitChanges();
             System.out.println("Flight route removed successfully: " +
                     sourceAirport + " -> " + destinationAirport);
         } catch (IOException e) {
@@ -580,18 +631,98 @@ public class BFS extends Application {
         showMainMenu();
     }
 
+    // Whole numbers without a trailing ".0", as the labels were before decimal weights
+    private static String formatAmount(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    private static void applyAddAirport(String name, double x, double y) {
+        if (network.addVertex(name)) {
+            cityPositions.add(new double[]{x, y});
+        }
+    }
+
+    // The last airport moves into the removed one's index, position included
+    private static void applyRemoveAirport(int index) {
+        int last = network.getSize() - 1;
+        network.removeVertex(index);
+        cityPositions.set(index, cityPositions.get(last));
+        cityPositions.remove(last);
+    }
+
+    // Makes the logged changes durable, folding the log into the snapshot
+    // once it is large enough. Only a failed commit is thrown; the change
+    // is saved by then, so a failed compaction is just reported.
+    private static void commitChanges() throws IOException {
+        changeLog.commit();
+        if (changeLog.size() > COMPACT_BYTES) tryCompactChanges();
+    }
 
+    // The log keeps every edit until a compaction succeeds, so a failed one
+    // loses nothing and is tried again next time
+    private static void tryCompactChanges() {
+        try {
+            compactChanges();
+        } catch (IOException e) {
+            System.out.println("Could not write edits back to the data files; they stay in "
+                    + CHANGE_LOG_FILE + ": " + e.getMessage());
+        }
+    }
 
-    private void saveEdgesToFile() throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(EDGES_FILE))) {
-            for (int i = 0; i < edges.length; i++) {
-                int from = edges[i][0];
-                int to = edges[i][1];
-                double time = edgeWeights[i][0];
-                double cost = edgeWeights[i][1];
-                writer.println(from + "," + to + "," + (int) time + "," + (int) cost);
+    // Writes the network to the snapshot and the text files, then clears
+    // the log. The snapshot goes to the slot not in use and the text files
+    // are replaced atomically. If we stop part way, the snapshot's sequence
+    // makes replay skip the records it already holds, and text files newer
+    // than it are loaded knowing no edit is missing.
+    private static void compactChanges() throws IOException {
+        File snapshot = GraphSnapshot.writeNext(new File(SNAPSHOT_FILE), routingGraph(),
+                cityPositions.toArray(new double[0][]), changeLog.getSequence());
+        try {
+            saveTextFiles();
+        } finally {
+            // the snapshot must count as fresh again: the text files now match
+            // it, or some were left half written and only the snapshot is whole
+            long newest = Math.max(System.currentTimeMillis(), Math.max(new File(AIRPORTS_FILE).lastModified(),
+                    Math.max(new File(EDGES_FILE).lastModified(), new File(POSITIONS_FILE).lastModified())));
+            snapshot.setLastModified(newest);
+        }
+        changeLog.reset();
+    }
+
+    // Same formats loadTextFiles reads
+    private static void saveTextFiles() throws IOException {
+        writeAtomically(AIRPORTS_FILE, writer -> {
+            for (int i = 0; i < network.getSize(); i++) {
+                writer.println(network.getVertex(i));
+            }
+        });
+        writeAtomically(EDGES_FILE, writer -> {
+            for (int from = 0; from < network.getSize(); from++) {
+                for (WeightedGraph.Edge edge : network.getEdges(from)) {
+                    writer.println(from + "," + edge.to + "," + formatAmount(edge.time) + "," + formatAmount(edge.cost));
+                }
             }
+        });
+        writeAtomically(POSITIONS_FILE, writer -> {
+            for (double[] position : cityPositions) {
+                writer.println(position[0] + "," + position[1]);
+            }
+        });
+    }
+
+    private interface TextWriter {
+        void write(PrintWriter writer);
+    }
+
+    // Writes beside the file and moves the result over it
+    private static void writeAtomically(String fileName, TextWriter content) throws IOException {
+        File file = new File(fileName);
+        File temp = new File(fileName + ".tmp");
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(temp)))) {
+            content.write(writer);
+            if (writer.checkError()) throw new IOException("Could not write " + temp);
         }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
     private void showGraph() {
@@ -604,26 +735,27 @@ public class BFS extends Application {
         layout.setBottom(backBtn);
 
         // --- Draw edges (no weights, just simple graph) ---
-        for (int[] edge : edges) {
-            int from = edge[0];
-            int to = edge[1];
-
-            double x1 = cityPositions[from][0];
-            double y1 = cityPositions[from][1];
-            double x2 = cityPositions[to][0];
-            double y2 = cityPositions[to][1];
-
-            Line line = new Line(x1, y1, x2, y2);
-            line.setStroke(Color.GRAY);
-            graphPane.getChildren().add(line);
+        for (int from = 0; from < network.getSize(); from++) {
+            for (WeightedGraph.Edge edge : network.getEdges(from)) {
+                int to = edge.to;
+
+                double x1 = cityPositions.get(from)[0];
+                double y1 = cityPositions.get(from)[1];
+                double x2 = cityPositions.get(to)[0];
+                double y2 = cityPositions.get(to)[1];
+
+                Line line = new Line(x1, y1, x2, y2);
+                line.setStroke(Color.GRAY);
+                graphPane.getChildren().add(line);
+            }
         }
 
         // --- Draw nodes ---
-        for (int i = 0; i < vertices.length; i++) {
-            double x = cityPositions[i][0];
-            double y = cityPositions[i][1];
+        for (int i = 0; i < network.getSize(); i++) {
+            double x = cityPositions.get(i)[0];
+            double y = cityPositions.get(i)[1];
             Circle circle = new Circle(x, y, 8, Color.LIGHTBLUE);
-            Text label = new Text(x - 20, y - 10, vertices[i]);
+            Text label = new Text(x - 20, y - 10, network.getVertex(i));
             graphPane.getChildren().addAll(circle, label);
         }
 
@@ -632,20 +764,6 @@ public class BFS extends Application {
         primaryStage.setTitle("Unweighted Graph View");
     }
 
-    private void saveDataToFiles() throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(AIRPORTS_FILE))) {
-            for (String vertex : vertices) {
-                writer.println(vertex);
-            }
-        }
-
-        try (PrintWriter writer = new PrintWriter(new FileWriter(POSITIONS_FILE))) {
-            for (double[] position : cityPositions) {
-                writer.println(position[0] + "," + position[1]);
-            }
-        }
-    }
-
     private void drawArrow(double startX, double startY, double endX, double endY, Color color) {
         // Draw main line
         Line line = new Line(startX, startY, endX, endY);
@@ -685,43 +803,41 @@ public class BFS extends Application {
         graphPane = new Pane();
         graphPane.setPrefSize(800, 600);
 
-        for (int[] edge : edges) {
-            int from = edge[0];
-            int to = edge[1];
-
-            double x1 = cityPositions[from][0];
-            double y1 = cityPositions[from][1];
-            double x2 = cityPositions[to][0];
-            double y2 = cityPositions[to][1];
-
-            // Draw line
-            Line line = new Line(x1, y1, x2, y2);
-            line.setStroke(Color.GRAY);
-            line.setStrokeWidth(1);
-            graphPane.getChildren().add(line);
-
-            // Draw arrow at the end
-            double angle = Math.atan2(y2 - y1, x2 - x1);
-            double arrowLength = 10;
-            double arrowAngle = Math.toRadians(15);
-            Line arrow1 = new Line(
-                    x2, y2,
-                    x2 - arrowLength * Math.cos(angle - arrowAngle),
-                    y2 - arrowLength * Math.sin(angle - arrowAngle)
-            );
-            Line arrow2 = new Line(
-                    x2, y2,
-                    x2 - arrowLength * Math.cos(angle + arrowAngle),
-                    y2 - arrowLength * Math.sin(angle + arrowAngle)
-            );
-            graphPane.getChildren().addAll(arrow1, arrow2);
-
-            // Draw edge label
-            String label = edgeLabels[from][to]; // Added
-            if (label != null) { // Added
+        for (int from = 0; from < network.getSize(); from++) {
+            for (WeightedGraph.Edge edge : network.getEdges(from)) {
+                int to = edge.to;
+
+                double x1 = cityPositions.get(from)[0];
+                double y1 = cityPositions.get(from)[1];
+                double x2 = cityPositions.get(to)[0];
+                double y2 = cityPositions.get(to)[1];
+
+                // Draw line
+                Line line = new Line(x1, y1, x2, y2);
+                line.setStroke(Color.GRAY);
+                line.setStrokeWidth(1);
+                graphPane.getChildren().add(line);
+
+                // Draw arrow at the end
+                double angle = Math.atan2(y2 - y1, x2 - x1);
+                double arrowLength = 10;
+                double arrowAngle = Math.toRadians(15);
+                Line arrow1 = new Line(
+                        x2, y2,
+                        x2 - arrowLength * Math.cos(angle - arrowAngle),
+                        y2 - arrowLength * Math.sin(angle - arrowAngle)
+                );
+                Line arrow2 = new Line(
+                        x2, y2,
+                        x2 - arrowLength * Math.cos(angle + arrowAngle),
+                        y2 - arrowLength * Math.sin(angle + arrowAngle)
+                );
+                graphPane.getChildren().addAll(arrow1, arrow2);
+
+                // Draw edge label, formatted only here from the edge's time and cost
                 double midX = (x1 + x2) / 2;
                 double midY = (y1 + y2) / 2;
-                Text text = new Text(midX, midY, label);
+                Text text = new Text(midX, midY, formatAmount(edge.time) + "min, RM" + formatAmount(edge.cost));
                 text.setStyle("-fx-font-size: 10px; -fx-font-weight: bold;");
                 graphPane.getChildren().add(text);
             }
@@ -732,22 +848,22 @@ public class BFS extends Application {
             int from = shortestPath.get(i);
             int to = shortestPath.get(i + 1);
             drawArrow(
-                    cityPositions[from][0], cityPositions[from][1],
-                    cityPositions[to][0], cityPositions[to][1],
+                    cityPositions.get(from)[0], cityPositions.get(from)[1],
+                    cityPositions.get(to)[0], cityPositions.get(to)[1],
                     Color.RED
             );
         }
 
         // Draw cities (nodes)
-        for (int i = 0; i < vertices.length; i++) {
+        for (int i = 0; i < network.getSize(); i++) {
             double radius = 5; // smaller circle
-            Circle cityCircle = new Circle(cityPositions[i][0], cityPositions[i][1], radius);
+            Circle cityCircle = new Circle(cityPositions.get(i)[0], cityPositions.get(i)[1], radius);
             if (shortestPath.contains(i)) {
                 cityCircle.setFill(Color.RED);
             } else {
                 cityCircle.setFill(Color.BLUE);
             }
-            Text cityLabel = new Text(cityPositions[i][0] - 30, cityPositions[i][1] - 20, vertices[i]);
+            Text cityLabel = new Text(cityPositions.get(i)[0] - 30, cityPositions.get(i)[1] - 20, network.getVertex(i));
             graphPane.getChildren().addAll(cityCircle, cityLabel);
         }
 
@@ -776,8 +892,8 @@ public class BFS extends Application {
     private void printAirportsTable() {
     System.out.println("\nAvailable Airports:");
     System.out.println("----------------------------");
-    for (int i = 0; i < vertices.length; i++) {
-        System.out.printf("%-20s ", vertices[i]);
+    for (int i = 0; i < network.getSize(); i++) {
+        System.out.printf("%-20s ", network.getVertex(i));
     }
     System.out.println("----------------------------");
 }
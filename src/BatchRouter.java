@@ -0,0 +1,201 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Answers many route queries at once, e.g. a nightly pricing run. Queries
+// with the same start and mode share one Dijkstra search, which stops as
+// soon as all of their destinations are settled. The groups are spread over
+// a fork-join pool and the routes come back in the order the queries were
+// given.
+public class BatchRouter<V> {
+    // origin groups per fork-join leaf task
+    private static final int GROUPS_PER_TASK = 4;
+
+    public static class Query<V> {
+        private final V start;
+        private final V end;
+        private final String mode;
+
+        // mode = "time" for shortest travel time, "cost" for cheapest route
+        public Query(V start, V end, String mode) {
+            this.start = start;
+            this.end = end;
+            this.mode = mode;
+        }
+
+        public V getStart() {
+            return start;
+        }
+
+        public V getEnd() {
+            return end;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+    }
+
+    private final CsrGraph<V> graph;
+    private final ForkJoinPool pool;
+
+    public BatchRouter(CsrGraph<V> graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public BatchRouter(CsrGraph<V> graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    // One route per query, in query order. The path is empty where there is
+    // no route or a city is unknown.
+    public List<Route<V>> getRoutes(List<Query<V>> queries) {
+        List<Route<V>> routes = new ArrayList<>(Collections.<Route<V>>nCopies(queries.size(), null));
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            Query<V> query = queries.get(i);
+            int source = graph.getIndex(query.start);
+            int target = graph.getIndex(query.end);
+            if (source == -1 || target == -1) {
+                routes.set(i, new Route<>(Collections.emptyList(), 0, 0));
+                continue;
+            }
+            groups.computeIfAbsent(source + " " + query.mode, key -> new Group(source, query.mode)).add(i, target);
+        }
+
+        List<Group> work = new ArrayList<>(groups.values());
+        if (!work.isEmpty()) pool.invoke(new Groups(work, 0, work.size(), routes));
+        return routes;
+    }
+
+    // The queries that share one start and mode
+    private static class Group {
+        final int source;
+        final String mode;
+        int size;
+        int[] positions = new int[4]; // index of each query in the batch
+        int[] targets = new int[4];
+
+        Group(int source, String mode) {
+            this.source = source;
+            this.mode = mode;
+        }
+
+        void add(int position, int target) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            positions[size] = position;
+            targets[size] = target;
+            size++;
+        }
+    }
+
+    private class Groups extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Group> groups;
+        private final int lo;
+        private final int hi;
+        private final List<Route<V>> routes; // each group sets only its own queries' slots
+
+        Groups(List<Group> groups, int lo, int hi, List<Route<V>> routes) {
+            this.groups = groups;
+            this.lo = lo;
+            this.hi = hi;
+            this.routes = routes;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > GROUPS_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Groups(groups, lo, mid, routes), new Groups(groups, mid, hi, routes));
+                return;
+            }
+
+            // scratch shared by the groups of this task only; stamps mark
+            // what belongs to the current search, so nothing is cleared in between
+            int n = graph.getSize();
+            double[] dist = new double[n];
+            int[] parent = new int[n];
+            int[] parentEdge = new int[n];
+            int[] reached = new int[n]; // == stamp once dist, parent and parentEdge are set
+            int[] wanted = new int[n];  // == stamp for destinations not settled yet
+            IndexedMinHeap heap = new IndexedMinHeap(n);
+            for (int g = lo; g < hi; g++) {
+                int stamp = g - lo + 1;
+                search(groups.get(g), stamp, dist, parent, parentEdge, reached, wanted, heap);
+                collect(groups.get(g), stamp, parent, parentEdge, reached);
+            }
+        }
+
+        private void search(Group group, int stamp, double[] dist, int[] parent, int[] parentEdge,
+                            int[] reached, int[] wanted, IndexedMinHeap heap) {
+            int remaining = 0;
+            for (int k = 0; k < group.size; k++) {
+                if (wanted[group.targets[k]] != stamp) {
+                    wanted[group.targets[k]] = stamp;
+                    remaining++;
+                }
+            }
+
+            double[] weights = graph.getWeights(group.mode);
+            heap.clear();
+            dist[group.source] = 0;
+            parent[group.source] = -1;
+            parentEdge[group.source] = -1;
+            reached[group.source] = stamp;
+            heap.offer(group.source, 0);
+
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                if (wanted[u] == stamp) {
+                    wanted[u] = 0;
+                    if (--remaining == 0) break; // every destination of the group is settled
+                }
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int v = graph.getTarget(e);
+                    double d = dist[u] + weights[e];
+                    if (reached[v] != stamp || d < dist[v]) {
+                        reached[v] = stamp;
+                        dist[v] = d;
+                        parent[v] = u;
+                        parentEdge[v] = e;
+                        heap.offer(v, d);
+                    }
+                }
+            }
+        }
+
+        // Walks parents back from each destination; repeated queries share one route
+        private void collect(Group group, int stamp, int[] parent, int[] parentEdge, int[] reached) {
+            Map<Integer, Route<V>> byTarget = new HashMap<>();
+            for (int k = 0; k < group.size; k++) {
+                int target = group.targets[k];
+                Route<V> route = byTarget.get(target);
+                if (route == null) {
+                    List<V> path = new ArrayList<>();
+                    double time = 0;
+                    double cost = 0;
+                    if (reached[target] == stamp) {
+                        for (int at = target; at != -1; at = parent[at]) {
+                            path.add(graph.getVertex(at));
+                            if (parentEdge[at] != -1) {
+                                time += graph.getTime(parentEdge[at]);
+                                cost += graph.getCost(parentEdge[at]);
+                            }
+                        }
+                        Collections.reverse(path);
+                    }
+                    // shared by every query for this target, so nobody may change it
+                    route = new Route<>(Collections.unmodifiableList(path), time, cost);
+                    byTarget.put(target, route);
+                }
+                routes.set(group.positions[k], route);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log of airport/route changes. Changes are buffered
+// and written together by commit, which also forces them to disk, so each
+// edit costs I/O proportional to the edit, not to the whole network.
+//
+// File: magic, version (2 ints), then records of
+//   length (int, of the body), crc32 of the body (int),
+//   body: type (byte), sequence (long), payload
+// A torn or corrupt record ends the log; open cuts it off with anything after it.
+public class ChangeLog implements Closeable {
+    private static final int MAGIC = 0x474C4F47; // "GLOG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final byte ADD_VERTEX = 1;    // name, x, y
+    private static final byte REMOVE_VERTEX = 2; // index
+    private static final byte ADD_EDGE = 3;      // from, to, time, cost
+    private static final byte REMOVE_EDGE = 4;   // from, to
+
+    // Receives the records being replayed, in the order they were written
+    public interface Handler {
+        void addVertex(String name, double x, double y);
+        void removeVertex(int v);
+        void addEdge(int from, int to, double time, double cost);
+        void removeEdge(int from, int to);
+    }
+
+    private final FileChannel channel;
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 12);
+    private int recordStart; // position in pending of the record being appended
+    private long end;      // file size once pending is committed
+    private long sequence; // sequence of the last record appended
+
+    private ChangeLog(FileChannel channel, long end, long sequence) {
+        this.channel = channel;
+        this.end = end;
+        this.sequence = sequence;
+    }
+
+    // Opens or creates the log and replays every record with a sequence after
+    // afterSequence, i.e. the ones not yet folded into the snapshot the caller
+    // loaded. New records continue the numbering.
+    public static ChangeLog open(File file, long afterSequence, Handler handler) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                writeHeader(channel);
+                return new ChangeLog(channel, HEADER_BYTES, afterSequence);
+            }
+
+            long[] scanned = scan(file, channel, afterSequence, handler);
+            long good = scanned[0];
+            if (good < size) {
+                channel.truncate(good);
+                channel.force(true);
+            }
+            return new ChangeLog(channel, good, scanned[1]);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Replays like open, for readers such as GraphViewer: the file is opened
+    // read-only, so it is never created, and a torn tail is skipped rather
+    // than cut off, since a writer may still be appending it. Returns the
+    // number of records passed to the handler.
+    public static int replay(File file, long afterSequence, Handler handler) throws IOException {
+        if (!file.isFile()) return 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) return 0;
+            return (int) scan(file, channel, afterSequence, handler)[2];
+        }
+    }
+
+    // Number of complete records with a sequence after afterSequence
+    public static int countAfter(File file, long afterSequence) throws IOException {
+        return replay(file, afterSequence, new Handler() {
+            @Override
+            public void addVertex(String name, double x, double y) {
+            }
+
+            @Override
+            public void removeVertex(int v) {
+            }
+
+            @Override
+            public void addEdge(int from, int to, double time, double cost) {
+            }
+
+            @Override
+            public void removeEdge(int from, int to) {
+            }
+        });
+    }
+
+    // Reads the whole log and applies the records after afterSequence.
+    // Returns the end of the last good record, the highest sequence seen
+    // (at least afterSequence) and the number of records applied.
+    private static long[] scan(File file, FileChannel channel, long afterSequence, Handler handler) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) throw new IOException("Change log is too large: " + file);
+
+        ByteBuffer data = ByteBuffer.allocate((int) size);
+        while (data.hasRemaining()) {
+            if (channel.read(data, data.position()) == -1) break;
+        }
+        data.flip();
+        if (data.getInt() != MAGIC) throw new IOException("Not a change log: " + file);
+        int version = data.getInt();
+        if (version != VERSION) throw new IOException("Unsupported change log version " + version);
+
+        long sequence = afterSequence;
+        int good = data.position();
+        int applied = 0;
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= 2 * Integer.BYTES) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) break;
+            crc.reset();
+            crc.update(data.array(), data.position(), length);
+            if ((int) crc.getValue() != checksum) break;
+
+            ByteBuffer body = data.slice();
+            body.limit(length);
+            data.position(data.position() + length);
+            long recordSequence = apply(body, afterSequence, handler);
+            if (recordSequence > afterSequence) applied++;
+            sequence = Math.max(sequence, recordSequence);
+            good = data.position();
+        }
+        return new long[]{good, sequence, applied};
+    }
+
+    // Returns the record's sequence; only records after afterSequence reach the handler
+    private static long apply(ByteBuffer body, long afterSequence, Handler handler) throws IOException {
+        byte type = body.get();
+        long sequence = body.getLong();
+        boolean replay = sequence > afterSequence;
+        switch (type) {
+            case ADD_VERTEX: {
+                byte[] name = new byte[body.getInt()];
+                body.get(name);
+                double x = body.getDouble();
+                double y = body.getDouble();
+                if (replay) handler.addVertex(new String(name, StandardCharsets.UTF_8), x, y);
+                break;
+            }
+            case REMOVE_VERTEX: {
+                int v = body.getInt();
+                if (replay) handler.removeVertex(v);
+                break;
+            }
+            case ADD_EDGE: {
+                int from = body.getInt();
+                int to = body.getInt();
+                double time = body.getDouble();
+                double cost = body.getDouble();
+                if (replay) handler.addEdge(from, to, time, cost);
+                break;
+            }
+            case REMOVE_EDGE: {
+                int from = body.getInt();
+                int to = body.getInt();
+                if (replay) handler.removeEdge(from, to);
+                break;
+            }
+            default:
+                throw new IOException("Unknown change log record type " + type);
+        }
+        return sequence;
+    }
+
+    public void addVertex(String name, double x, double y) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = begin(ADD_VERTEX, Integer.BYTES + bytes.length + 2 * Double.BYTES);
+        body.putInt(bytes.length).put(bytes).putDouble(x).putDouble(y);
+        finish(body);
+    }
+
+    public void removeVertex(int v) {
+        ByteBuffer body = begin(REMOVE_VERTEX, Integer.BYTES);
+        body.putInt(v);
+        finish(body);
+    }
+
+    public void addEdge(int from, int to, double time, double cost) {
+        ByteBuffer body = begin(ADD_EDGE, 2 * Integer.BYTES + 2 * Double.BYTES);
+        body.putInt(from).putInt(to).putDouble(time).putDouble(cost);
+        finish(body);
+    }
+
+    public void removeEdge(int from, int to) {
+        ByteBuffer body = begin(REMOVE_EDGE, 2 * Integer.BYTES);
+        body.putInt(from).putInt(to);
+        finish(body);
+    }
+
+    // Writes the records appended since the last commit and forces them to
+    // disk; once this returns they survive a crash
+    public void commit() throws IOException {
+        if (pending.position() == 0) return;
+        pending.flip();
+        long at = end;
+        while (pending.hasRemaining()) {
+            at += channel.write(pending, at);
+        }
+        channel.force(false);
+        end = at;
+        pending.clear();
+    }
+
+    // Drops every record, after the caller has folded them into a snapshot
+    // stamped with getSequence(). Uncommitted records are dropped as well.
+    public void reset() throws IOException {
+        pending.clear();
+        channel.truncate(HEADER_BYTES);
+        channel.force(true);
+        end = HEADER_BYTES;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Bytes in the file, committed records only
+    public long size() {
+        return end;
+    }
+
+    // True if no records have been appended since the log was opened or reset,
+    // counting those replayed by open
+    public boolean isEmpty() {
+        return end == HEADER_BYTES && pending.position() == 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        channel.truncate(0);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+    // Reserves room for one record in pending and writes everything but the
+    // length and checksum, which finish fills in
+    private ByteBuffer begin(byte type, int payloadBytes) {
+        int bodyBytes = 1 + Long.BYTES + payloadBytes;
+        if (pending.remaining() < 2 * Integer.BYTES + bodyBytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + 2 * Integer.BYTES + bodyBytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        recordStart = pending.position();
+        pending.putInt(bodyBytes).putInt(0);
+        pending.put(type).putLong(++sequence);
+        return pending;
+    }
+
+    private void finish(ByteBuffer body) {
+        int bodyStart = recordStart + 2 * Integer.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), bodyStart, body.position() - bodyStart);
+        body.putInt(recordStart + Integer.BYTES, (int) crc.getValue());
+    }
+}
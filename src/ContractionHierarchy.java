@@ -0,0 +1,491 @@
+import java.util.*;
+
+// Contraction hierarchies: vertices are contracted one by one in order of
+// importance, adding shortcut arcs that preserve shortest distances among
+// the rest. A query then only walks "upwards" in that order from both ends,
+// which touches a tiny part of the graph. One hierarchy is kept per metric.
+// Run the class for a self-check against Dijkstra:
+//   java ContractionHierarchy [graphs] [seed]
+public class ContractionHierarchy<V> {
+    // Witness searches give up after settling this many vertices and keep the
+    // shortcut; the cheaper limit is for estimating priorities only
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int WITNESS_ESTIMATE_LIMIT = 10;
+
+    private final CsrGraph<V> graph;
+    private final Hierarchy time;
+    private final Hierarchy cost;
+
+    public ContractionHierarchy(WeightedGraph<V> graph) {
+        this(CsrGraph.fromWeighted(graph));
+    }
+
+    // Preprocessing happens here, once for each metric
+    public ContractionHierarchy(CsrGraph<V> graph) {
+        this.graph = graph;
+        this.time = new Hierarchy(graph, graph.getWeights("time"));
+        this.cost = new Hierarchy(graph, graph.getWeights("cost"));
+    }
+
+    // mode = "time" for shortest travel time, "cost" for cheapest route
+    public List<V> getPath(V start, V end, String mode) {
+        int startIndex = graph.getIndex(start);
+        int endIndex = graph.getIndex(end);
+
+        if (startIndex == -1 || endIndex == -1) return Collections.emptyList();
+
+        Hierarchy h = mode.equals("time") ? time : cost;
+        int[] route = h.query(startIndex, endIndex);
+        if (route == null) return Collections.emptyList();
+
+        List<V> path = new ArrayList<>(route.length);
+        for (int v : route) {
+            path.add(graph.getVertex(v));
+        }
+        return path;
+    }
+
+    // Number of shortcut arcs added for a metric
+    public int getShortcutCount(String mode) {
+        return (mode.equals("time") ? time : cost).shortcuts;
+    }
+
+    private static class Hierarchy {
+        private final int n;
+
+        // every arc, original or shortcut; a shortcut u -> x through v has
+        // childA = arc u -> v and childB = arc v -> x, an original arc has -1
+        private int[] arcFrom = new int[16];
+        private int[] arcTo = new int[16];
+        private double[] arcWeight = new double[16];
+        private int[] childA = new int[16];
+        private int[] childB = new int[16];
+        private int arcCount;
+        private int shortcuts;
+
+        // arcs leaving v upwards, and arcs entering v from above, in CSR form
+        private int[] upOffsets;
+        private int[] upArcs;
+        private int[] downOffsets;
+        private int[] downArcs;
+
+        // query scratch
+        private final double[] distF;
+        private final double[] distB;
+        private final int[] prevArcF;
+        private final int[] prevArcB;
+        private final IndexedMinHeap heapF;
+        private final IndexedMinHeap heapB;
+        private final int[] touched; // vertices whose distances must be reset after a query
+        private int touchedCount;
+        private final int[] position; // index of each vertex in the route being unpacked, -1 if absent
+
+        Hierarchy(CsrGraph<?> graph, double[] weights) {
+            n = graph.getSize();
+            distF = new double[n];
+            distB = new double[n];
+            prevArcF = new int[n];
+            prevArcB = new int[n];
+            heapF = new IndexedMinHeap(n);
+            heapB = new IndexedMinHeap(n);
+            touched = new int[2 * n];
+            position = new int[n];
+            Arrays.fill(position, -1);
+            Arrays.fill(distF, Double.POSITIVE_INFINITY);
+            Arrays.fill(distB, Double.POSITIVE_INFINITY);
+            contract(graph, weights);
+        }
+
+        private void contract(CsrGraph<?> graph, double[] weights) {
+            ArcList[] out = new ArcList[n];
+            ArcList[] in = new ArcList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new ArcList();
+                in[v] = new ArcList();
+            }
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int x = graph.getTarget(e);
+                    if (x != u) link(out, in, u, x, weights[e], -1, -1);
+                }
+            }
+
+            Witness witness = new Witness(n);
+            int[] deletedNeighbours = new int[n];
+            ArcList[] upLists = new ArcList[n];
+            ArcList[] downLists = new ArcList[n];
+
+            IndexedMinHeap order = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                order.offer(v, priority(v, out, in, deletedNeighbours, witness, false));
+            }
+
+            while (!order.isEmpty()) {
+                int v = order.poll();
+                // lazy update: the stored priority may be stale since neighbours were contracted
+                double p = priority(v, out, in, deletedNeighbours, witness, false);
+                if (!order.isEmpty() && p > order.peekKey()) {
+                    order.offer(v, p);
+                    continue;
+                }
+
+                priority(v, out, in, deletedNeighbours, witness, true);
+                upLists[v] = out[v];
+                downLists[v] = in[v];
+
+                // v leaves the remaining graph
+                for (int i = 0; i < out[v].size; i++) {
+                    int x = arcTo[out[v].ids[i]];
+                    in[x].removeArc(out[v].ids[i]);
+                    deletedNeighbours[x]++;
+                }
+                for (int i = 0; i < in[v].size; i++) {
+                    int u = arcFrom[in[v].ids[i]];
+                    out[u].removeArc(in[v].ids[i]);
+                    deletedNeighbours[u]++;
+                }
+            }
+
+            upOffsets = new int[n + 1];
+            downOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                upOffsets[v + 1] = upOffsets[v] + upLists[v].size;
+                downOffsets[v + 1] = downOffsets[v] + downLists[v].size;
+            }
+            upArcs = new int[upOffsets[n]];
+            downArcs = new int[downOffsets[n]];
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(upLists[v].ids, 0, upArcs, upOffsets[v], upLists[v].size);
+                System.arraycopy(downLists[v].ids, 0, downArcs, downOffsets[v], downLists[v].size);
+            }
+        }
+
+        // Edge difference plus contracted neighbours. With apply = true the
+        // needed shortcuts are actually added instead of just counted.
+        private double priority(int v, ArcList[] out, ArcList[] in, int[] deletedNeighbours, Witness witness, boolean apply) {
+            int added = 0;
+            for (int i = 0; i < in[v].size; i++) {
+                int a = in[v].ids[i];
+                int u = arcFrom[a];
+
+                double limit = 0;
+                for (int j = 0; j < out[v].size; j++) {
+                    limit = Math.max(limit, arcWeight[a] + arcWeight[out[v].ids[j]]);
+                }
+                witness.run(this, out, u, v, out[v], limit, apply ? WITNESS_SETTLE_LIMIT : WITNESS_ESTIMATE_LIMIT);
+
+                for (int j = 0; j < out[v].size; j++) {
+                    int b = out[v].ids[j];
+                    int x = arcTo[b];
+                    if (x == u) continue;
+                    double via = arcWeight[a] + arcWeight[b];
+                    if (witness.distance(x) <= via) continue;
+                    added++;
+                    if (apply && link(out, in, u, x, via, a, b)) shortcuts++;
+                }
+            }
+            return added - in[v].size - out[v].size + deletedNeighbours[v];
+        }
+
+        // Adds arc u -> x unless an arc at least as short already exists
+        private boolean link(ArcList[] out, ArcList[] in, int u, int x, double weight, int a, int b) {
+            int existing = out[u].find(this, x);
+            if (existing != -1 && arcWeight[existing] <= weight) return false;
+
+            if (arcCount == arcFrom.length) {
+                int capacity = arcCount * 2;
+                arcFrom = Arrays.copyOf(arcFrom, capacity);
+                arcTo = Arrays.copyOf(arcTo, capacity);
+                arcWeight = Arrays.copyOf(arcWeight, capacity);
+                childA = Arrays.copyOf(childA, capacity);
+                childB = Arrays.copyOf(childB, capacity);
+            }
+            int id = arcCount++;
+            arcFrom[id] = u;
+            arcTo[id] = x;
+            arcWeight[id] = weight;
+            childA[id] = a;
+            childB[id] = b;
+
+            if (existing != -1) {
+                out[u].removeArc(existing);
+                in[x].removeArc(existing);
+            }
+            out[u].add(id);
+            in[x].add(id);
+            return true;
+        }
+
+        // Vertices of the shortest start -> end route, or null if there is none
+        int[] query(int start, int end) {
+            distF[start] = 0;
+            distB[end] = 0;
+            prevArcF[start] = -1;
+            prevArcB[end] = -1;
+            heapF.offer(start, 0);
+            heapB.offer(end, 0);
+            touched[touchedCount++] = start;
+            touched[touchedCount++] = end;
+
+            double best = Double.POSITIVE_INFINITY;
+            int meet = -1;
+
+            while (!heapF.isEmpty() || !heapB.isEmpty()) {
+                boolean forward = heapB.isEmpty() || (!heapF.isEmpty() && heapF.peekKey() <= heapB.peekKey());
+                IndexedMinHeap heap = forward ? heapF : heapB;
+                if (heap.peekKey() >= best) {
+                    heap.clear();
+                    continue;
+                }
+
+                int u = heap.poll();
+                if (distF[u] + distB[u] < best) {
+                    best = distF[u] + distB[u];
+                    meet = u;
+                }
+
+                double[] dist = forward ? distF : distB;
+                int[] prevArc = forward ? prevArcF : prevArcB;
+                int[] offsets = forward ? upOffsets : downOffsets;
+                int[] arcs = forward ? upArcs : downArcs;
+                if (stalled(u, dist, forward ? downOffsets : upOffsets, forward ? downArcs : upArcs, forward)) continue;
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    int a = arcs[i];
+                    int v = forward ? arcTo[a] : arcFrom[a];
+                    double d = dist[u] + arcWeight[a];
+                    if (d < dist[v]) {
+                        if (dist[v] == Double.POSITIVE_INFINITY) touched[touchedCount++] = v;
+                        dist[v] = d;
+                        prevArc[v] = a;
+                        heap.offer(v, d);
+                    }
+                }
+            }
+
+            int[] route = meet == -1 ? null : unpack(start, meet);
+
+            for (int i = 0; i < touchedCount; i++) {
+                distF[touched[i]] = Double.POSITIVE_INFINITY;
+                distB[touched[i]] = Double.POSITIVE_INFINITY;
+            }
+            touchedCount = 0;
+            heapF.clear();
+            heapB.clear();
+            return route;
+        }
+
+        // Stall-on-demand: if a higher vertex already reaches u more cheaply
+        // through an arc pointing down into u, dist[u] is not a shortest
+        // distance and nothing reached from u can be on the shortest route
+        private boolean stalled(int u, double[] dist, int[] offsets, int[] arcs, boolean forward) {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int a = arcs[i];
+                int w = forward ? arcFrom[a] : arcTo[a];
+                if (dist[w] + arcWeight[a] < dist[u]) return true;
+            }
+            return false;
+        }
+
+        private int[] unpack(int start, int meet) {
+            // up-arcs from start to meet, then down-arcs from meet to end
+            List<Integer> arcs = new ArrayList<>();
+            for (int v = meet; prevArcF[v] != -1; v = arcFrom[prevArcF[v]]) {
+                arcs.add(prevArcF[v]);
+            }
+            Collections.reverse(arcs);
+            for (int v = meet; prevArcB[v] != -1; v = arcTo[prevArcB[v]]) {
+                arcs.add(prevArcB[v]);
+            }
+
+            int[] route = new int[arcs.size() + 1];
+            int size = 0;
+            route[size++] = start;
+            int[] stack = new int[16];
+            for (int arc : arcs) {
+                int top = 0;
+                stack[top++] = arc;
+                while (top > 0) {
+                    int a = stack[--top];
+                    if (childA[a] == -1) {
+                        if (size == route.length) route = Arrays.copyOf(route, size * 2);
+                        route[size++] = arcTo[a];
+                    } else {
+                        if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                        stack[top++] = childB[a];
+                        stack[top++] = childA[a];
+                    }
+                }
+            }
+            return withoutLoops(route, size);
+        }
+
+        // Zero-weight arcs can tie the way up and the way down through the
+        // same vertex, so the unpacked route may come back to a vertex it has
+        // already visited. Such a loop weighs nothing; cutting it out leaves a
+        // simple route of the same length.
+        private int[] withoutLoops(int[] route, int length) {
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                int v = route[i];
+                if (position[v] != -1) {
+                    for (int j = position[v] + 1; j < size; j++) {
+                        position[route[j]] = -1;
+                    }
+                    size = position[v] + 1;
+                } else {
+                    position[v] = size;
+                    route[size++] = v;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                position[route[i]] = -1;
+            }
+            return Arrays.copyOf(route, size);
+        }
+    }
+
+    // Growable list of arc ids; order does not matter
+    private static class ArcList {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        void removeArc(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+
+        // Arc in this out-list pointing at x, or -1
+        int find(Hierarchy h, int x) {
+            for (int i = 0; i < size; i++) {
+                if (h.arcTo[ids[i]] == x) return ids[i];
+            }
+            return -1;
+        }
+    }
+
+    // Bounded Dijkstra over the remaining graph that skips the vertex being contracted
+    private static class Witness {
+        private final double[] dist;
+        private final int[] stamp;
+        private final int[] targetStamp;
+        private final IndexedMinHeap heap;
+        private int epoch;
+
+        Witness(int n) {
+            dist = new double[n];
+            stamp = new int[n];
+            targetStamp = new int[n];
+            heap = new IndexedMinHeap(n);
+        }
+
+        // Stops once every head of the targets arcs is settled, the queue passes
+        // limit, or settleLimit vertices have been settled
+        void run(Hierarchy h, ArcList[] out, int source, int skip, ArcList targets, double limit, int settleLimit) {
+            epoch++;
+            heap.clear();
+            int remaining = 0;
+            for (int i = 0; i < targets.size; i++) {
+                int x = h.arcTo[targets.ids[i]];
+                if (x != source && targetStamp[x] != epoch) {
+                    targetStamp[x] = epoch;
+                    remaining++;
+                }
+            }
+
+            dist[source] = 0;
+            stamp[source] = epoch;
+            heap.offer(source, 0);
+
+            int settled = 0;
+            while (!heap.isEmpty() && settled++ < settleLimit) {
+                if (heap.peekKey() > limit) break;
+                int u = heap.poll();
+                if (targetStamp[u] == epoch && --remaining == 0) break;
+                for (int i = 0; i < out[u].size; i++) {
+                    int a = out[u].ids[i];
+                    int v = h.arcTo[a];
+                    if (v == skip) continue;
+                    double d = dist[u] + h.arcWeight[a];
+                    if (stamp[v] != epoch || d < dist[v]) {
+                        dist[v] = d;
+                        stamp[v] = epoch;
+                        heap.offer(v, d);
+                    }
+                }
+            }
+        }
+
+        double distance(int v) {
+            return stamp[v] == epoch ? dist[v] : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    // Builds random networks where many routes take no time or cost, then
+    // checks every answer against Dijkstra: same length, real edges only,
+    // and no airport visited twice.
+    public static void main(String[] args) {
+        int graphs = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        Random random = new Random(seed);
+        int queries = 0;
+        int mismatches = 0;
+        for (int g = 0; g < graphs; g++) {
+            int n = 5 + random.nextInt(40);
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) {
+                names[i] = "v" + i;
+            }
+            WeightedGraph<String> network = new WeightedGraph<>(names);
+            int m = n * (1 + random.nextInt(4));
+            for (int e = 0; e < m; e++) {
+                network.addEdge(random.nextInt(n), random.nextInt(n), random.nextInt(3), random.nextInt(3));
+            }
+            CsrGraph<String> csr = CsrGraph.fromWeighted(network);
+            ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(csr);
+            Dijkstra<String> dijkstra = new Dijkstra<>(csr);
+            for (String mode : new String[]{"time", "cost"}) {
+                for (int q = 0; q < 20; q++) {
+                    int start = random.nextInt(n);
+                    int end = random.nextInt(n);
+                    double expected = dijkstra.getDistances(start, mode)[end];
+                    List<String> path = hierarchy.getPath(names[start], names[end], mode);
+                    queries++;
+                    if (!isShortestSimplePath(csr, path, names[start], names[end], mode, expected)) {
+                        mismatches++;
+                        System.out.println(mode + " " + names[start] + " -> " + names[end] + ": " + path);
+                    }
+                }
+            }
+        }
+        System.out.println(queries + " queries, " + mismatches + " mismatches");
+        if (mismatches > 0) System.exit(1);
+    }
+
+    private static boolean isShortestSimplePath(CsrGraph<String> graph, List<String> path, String start, String end,
+                                                String mode, double expected) {
+        if (path.isEmpty()) return expected == Double.POSITIVE_INFINITY;
+        if (!path.get(0).equals(start) || !path.get(path.size() - 1).equals(end)) return false;
+        if (new HashSet<>(path).size() != path.size()) return false;
+        double[] weights = graph.getWeights(mode);
+        double length = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            int u = graph.getIndex(path.get(i));
+            int v = graph.getIndex(path.get(i + 1));
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                if (graph.getTarget(e) == v) best = Math.min(best, weights[e]);
+            }
+            length += best;
+        }
+        return length == expected;
+    }
+}
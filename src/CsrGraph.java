@@ -0,0 +1,315 @@
+import java.util.*;
+
+// Immutable compressed sparse row graph. The edges leaving u are the slots
+// offsets[u] .. offsets[u + 1] - 1 of the targets/time/cost columns.
+public class CsrGraph<V> extends AbstractGraph<V> {
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] time;
+    private final double[] cost;
+    private CsrGraph<V> reverse;
+
+    private CsrGraph(List<V> vertices, int[] offsets, int[] targets, double[] time, double[] cost) {
+        for (V v : vertices) {
+            this.vertices.add(v);
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.time = time;
+        this.cost = cost;
+    }
+
+    // Wraps ready-made CSR columns without copying them, e.g. ones read from a
+    // GraphSnapshot. The columns are checked for shape, not trusted.
+    static <V> CsrGraph<V> fromArrays(List<V> vertices, int[] offsets, int[] targets, double[] time, double[] cost) {
+        int n = vertices.size();
+        int m = targets.length;
+        if (offsets.length != n + 1 || offsets[0] != 0 || offsets[n] != m || time.length != m || cost.length != m) {
+            throw new IllegalArgumentException("CSR columns do not match " + n + " vertices and " + m + " edges");
+        }
+        for (int u = 0; u < n; u++) {
+            if (offsets[u] > offsets[u + 1]) throw new IllegalArgumentException("CSR offsets are not sorted at " + u);
+        }
+        for (int e = 0; e < m; e++) {
+            if (targets[e] < 0 || targets[e] >= n) throw new IllegalArgumentException("Edge " + e + " points to " + targets[e]);
+        }
+        return new CsrGraph<>(vertices, offsets, targets, time, cost);
+    }
+
+    // Every edge of an unweighted graph gets time = cost = 1, i.e. hop count
+    public static <V> CsrGraph<V> fromGraph(Graph<V> graph) {
+        int n = graph.getSize();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = offsets[u] + graph.getDegree(u);
+        }
+
+        int m = offsets[n];
+        int[] targets = new int[m];
+        double[] time = new double[m];
+        double[] cost = new double[m];
+        for (int u = 0; u < n; u++) {
+            int slot = offsets[u];
+            for (int v : graph.getNeighbours(u)) {
+                targets[slot++] = v;
+            }
+        }
+        Arrays.fill(time, 1);
+        Arrays.fill(cost, 1);
+
+        return new CsrGraph<>(graph.getVertices(), offsets, targets, time, cost);
+    }
+
+    public static <V> CsrGraph<V> fromWeighted(WeightedGraph<V> graph) {
+        int n = graph.getSize();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = offsets[u] + graph.getEdges(u).size();
+        }
+
+        int m = offsets[n];
+        int[] targets = new int[m];
+        double[] time = new double[m];
+        double[] cost = new double[m];
+        List<V> vertices = new ArrayList<>(n);
+        for (int u = 0; u < n; u++) {
+            vertices.add(graph.getVertex(u));
+            int slot = offsets[u];
+            for (WeightedGraph.Edge e : graph.getEdges(u)) {
+                targets[slot] = e.to;
+                time[slot] = e.time;
+                cost[slot] = e.cost;
+                slot++;
+            }
+        }
+
+        return new CsrGraph<>(vertices, offsets, targets, time, cost);
+    }
+
+    // Buckets the edges by source with a counting sort; the edges of one
+    // source keep the order they have in the list
+    public static <V> CsrGraph<V> fromEdgeList(List<V> vertices, EdgeList edges) {
+        int n = vertices.size();
+        int m = edges.size();
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            int u = edges.getFrom(i);
+            int v = edges.getTo(i);
+            if (u < 0 || u >= n || v < 0 || v >= n) {
+                throw new IllegalArgumentException("Edge " + i + " (" + u + " -> " + v + ") is outside 0.." + (n - 1));
+            }
+            offsets[u + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        int[] next = Arrays.copyOf(offsets, n);
+        int[] targets = new int[m];
+        double[] time = new double[m];
+        double[] cost = new double[m];
+        for (int i = 0; i < m; i++) {
+            int slot = next[edges.getFrom(i)]++;
+            targets[slot] = edges.getTo(i);
+            time[slot] = edges.getTime(i);
+            cost[slot] = edges.getCost(i);
+        }
+
+        return new CsrGraph<>(vertices, offsets, targets, time, cost);
+    }
+
+    // The same graph with every edge turned around, built on first use
+    public CsrGraph<V> getReverse() {
+        if (reverse == null) {
+            int n = getSize();
+            int m = targets.length;
+            int[] revOffsets = new int[n + 1];
+            for (int e = 0; e < m; e++) {
+                revOffsets[targets[e] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                revOffsets[v + 1] += revOffsets[v];
+            }
+
+            int[] next = Arrays.copyOf(revOffsets, n);
+            int[] revTargets = new int[m];
+            double[] revTime = new double[m];
+            double[] revCost = new double[m];
+            for (int u = 0; u < n; u++) {
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int slot = next[targets[e]]++;
+                    revTargets[slot] = u;
+                    revTime[slot] = time[e];
+                    revCost[slot] = cost[e];
+                }
+            }
+
+            CsrGraph<V> r = new CsrGraph<>(vertices.asList(), revOffsets, revTargets, revTime, revCost);
+            r.reverse = this;
+            reverse = r;
+        }
+        return reverse;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    // First edge slot of u
+    public int edgeStart(int u) {
+        return offsets[u];
+    }
+
+    // One past the last edge slot of u
+    public int edgeEnd(int u) {
+        return offsets[u + 1];
+    }
+
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    public double getTime(int edge) {
+        return time[edge];
+    }
+
+    public double getCost(int edge) {
+        return cost[edge];
+    }
+
+    // mode = "time" or "cost"; the returned column is shared, do not modify it
+    public double[] getWeights(String mode) {
+        return mode.equals("time") ? time : cost;
+    }
+
+    @Override
+    public List<Integer> getNeighbours(int index) {
+        int from = offsets[index];
+        int to = offsets[index + 1];
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int i) {
+                return targets[from + i];
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    @Override
+    public int getDegree(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    @Override
+    public void printEdges() {
+        for (int u = 0; u < getSize(); u++) {
+            System.out.print(vertices.get(u) + " -> ");
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                System.out.print(vertices.get(targets[e]) + " ");
+            }
+            System.out.println();
+        }
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean addVertex(V v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean addEdge(int u, int v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean removeVertex(int v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(int u, int v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public Tree dfs(int v) {
+        int n = getSize();
+        List<Integer> searchOrder = new ArrayList<>();
+        int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+
+        boolean[] visited = new boolean[n];
+        int[] stack = new int[n];
+        int[] cursor = new int[n]; // next edge slot to look at, per vertex on the stack
+        int top = 0;
+
+        stack[top++] = v;
+        cursor[v] = offsets[v];
+        visited[v] = true;
+        searchOrder.add(v);
+
+        while (top > 0) {
+            int u = stack[top - 1];
+            if (cursor[u] == offsets[u + 1]) {
+                top--;
+                continue;
+            }
+            int w = targets[cursor[u]++];
+            if (!visited[w]) {
+                visited[w] = true;
+                parent[w] = u;
+                searchOrder.add(w);
+                cursor[w] = offsets[w];
+                stack[top++] = w;
+            }
+        }
+
+        return new Tree(v, parent, searchOrder);
+    }
+
+    @Override
+    public Tree bfs(int v) {
+        int n = getSize();
+        int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        queue[tail++] = v;
+        visited[v] = true;
+
+        while (head < tail) {
+            int u = queue[head++];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int w = targets[e];
+                if (!visited[w]) {
+                    queue[tail++] = w;
+                    parent[w] = u;
+                    visited[w] = true;
+                }
+            }
+        }
+
+        List<Integer> searchOrder = new ArrayList<>(tail);
+        for (int i = 0; i < tail; i++) {
+            searchOrder.add(queue[i]);
+        }
+        return new Tree(v, parent, searchOrder);
+    }
+
+    // Parallel direction-optimizing BFS; parents and the order within a level
+    // may differ from bfs, depths do not
+    public Tree parallelBfs(int v) {
+        return DirectionOptimizingBfs.bfs(this, v);
+    }
+}
@@ -1,14 +1,39 @@
 import java.util.*;
 
 public class Dijkstra<V> {
-    private final WeightedGraph<V> graph;
+    // a tree holds three arrays over all vertices, so only a few are kept
+    private static final int TREE_CACHE_SIZE = 8;
 
+    private final CsrGraph<V> graph;
+    // recently built trees, most recently used first; the CSR graph never
+    // changes, so they never go stale. With so few, a scan over the trees'
+    // own source and mode finds one without building a key.
+    private final List<ShortestPathTree<V>> trees = new ArrayList<>(TREE_CACHE_SIZE + 1);
+
+    // Searches run on a CSR snapshot of the graph taken here
     public Dijkstra(WeightedGraph<V> graph) {
+        this(CsrGraph.fromWeighted(graph));
+    }
+
+    public Dijkstra(CsrGraph<V> graph) {
         this.graph = graph;
     }
 
     // mode = "time" for shortest travel time, "cost" for cheapest route
     public List<V> getPath(V start, V end, String mode) {
+        return getPath(start, end, mode, false);
+    }
+
+    // bidirectional = true searches from both ends at once, which settles far
+    // fewer vertices on point-to-point queries; the route length is the same
+    public List<V> getPath(V start, V end, String mode, boolean bidirectional) {
+        if (bidirectional) return getPathBidirectional(start, end, mode);
+
+        // a cached tree from start already knows the way
+        int source = graph.getIndex(start);
+        ShortestPathTree<V> tree = source == -1 ? null : getCachedTree(source, mode);
+        if (tree != null) return tree.getPath(end);
+
         int n = graph.getSize();
         int startIndex = graph.getIndex(start);
         int endIndex = graph.getIndex(end);
@@ -20,25 +45,29 @@ public class Dijkstra<V> {
         Arrays.fill(dist, Double.POSITIVE_INFINITY);
         Arrays.fill(prev, -1);
 
+        double[] weights = graph.getWeights(mode); // choose metric
         dist[startIndex] = 0;
 
-        PriorityQueue<int[]> pq = new PriorityQueue<>(Comparator.comparingDouble(a -> dist[a[0]]));
-        pq.add(new int[]{startIndex});
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        heap.offer(startIndex, 0);
 
-        while (!pq.isEmpty()) {
-            int u = pq.poll()[0];
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            if (u == endIndex) break; // settled, dist[endIndex] is final
 
-            for (WeightedGraph.Edge e : graph.getEdges(u)) {
-                int v = e.to;
-                double weight = mode.equals("time") ? e.time : e.cost; // choose metric
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.getTarget(e);
+                double weight = weights[e];
                 if (dist[u] + weight < dist[v]) {
                     dist[v] = dist[u] + weight;
                     prev[v] = u;
-                    pq.add(new int[]{v, (int) dist[v]});
+                    heap.offer(v, dist[v]);
                 }
             }
         }
 
+        if (dist[endIndex] == Double.POSITIVE_INFINITY) return Collections.emptyList();
+
         // reconstruct path
         List<V> path = new ArrayList<>();
         for (int at = endIndex; at != -1; at = prev[at]) {
@@ -47,4 +76,162 @@ public class Dijkstra<V> {
         Collections.reverse(path);
         return path;
     }
+
+    // Shortest distance from source to every vertex, infinity where unreachable
+    public double[] getDistances(int source, String mode) {
+        double[] dist = new double[graph.getSize()];
+        search(source, mode, dist, null, null);
+        return dist;
+    }
+
+    // Shortest paths from start to everywhere; the tree is kept, so asking
+    // again from the same start, here or through getPath, needs no search
+    public ShortestPathTree<V> shortestPathTree(V start, String mode) {
+        int source = graph.getIndex(start);
+        if (source == -1) throw new IllegalArgumentException("Unknown vertex " + start);
+        return shortestPathTree(source, mode);
+    }
+
+    public ShortestPathTree<V> shortestPathTree(int source, String mode) {
+        ShortestPathTree<V> tree = getCachedTree(source, mode);
+        if (tree != null) return tree;
+
+        int n = graph.getSize();
+        double[] dist = new double[n];
+        int[] parent = new int[n];
+        int[] parentEdge = new int[n];
+        search(source, mode, dist, parent, parentEdge);
+        tree = new ShortestPathTree<>(graph, source, mode, dist, parent, parentEdge);
+        synchronized (trees) {
+            trees.add(0, tree);
+            if (trees.size() > TREE_CACHE_SIZE) trees.remove(TREE_CACHE_SIZE);
+        }
+        return tree;
+    }
+
+    // The tree from source if it is still cached, otherwise null
+    public ShortestPathTree<V> getCachedTree(int source, String mode) {
+        synchronized (trees) {
+            for (int i = 0; i < trees.size(); i++) {
+                ShortestPathTree<V> tree = trees.get(i);
+                if (tree.getSource() == source && tree.getMode().equals(mode)) {
+                    if (i > 0) trees.add(0, trees.remove(i));
+                    return tree;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Full search from source; parent and parentEdge may be null when only
+    // the distances are wanted
+    private void search(int source, String mode, double[] dist, int[] parent, int[] parentEdge) {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        if (parent != null) {
+            Arrays.fill(parent, -1);
+            Arrays.fill(parentEdge, -1);
+        }
+
+        double[] weights = graph.getWeights(mode);
+        dist[source] = 0;
+
+        IndexedMinHeap heap = new IndexedMinHeap(dist.length);
+        heap.offer(source, 0);
+
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.getTarget(e);
+                if (dist[u] + weights[e] < dist[v]) {
+                    dist[v] = dist[u] + weights[e];
+                    if (parent != null) {
+                        parent[v] = u;
+                        parentEdge[v] = e;
+                    }
+                    heap.offer(v, dist[v]);
+                }
+            }
+        }
+    }
+
+    private List<V> getPathBidirectional(V start, V end, String mode) {
+        int n = graph.getSize();
+        int startIndex = graph.getIndex(start);
+        int endIndex = graph.getIndex(end);
+
+        if (startIndex == -1 || endIndex == -1) return Collections.emptyList();
+
+        CsrGraph<V> reverse = graph.getReverse();
+        double[] weights = graph.getWeights(mode);
+        double[] reverseWeights = reverse.getWeights(mode);
+
+        // forward search from start over graph, backward search from end over reverse
+        double[] distF = new double[n];
+        double[] distB = new double[n];
+        int[] prev = new int[n]; // predecessor towards start
+        int[] next = new int[n]; // successor towards end
+        Arrays.fill(distF, Double.POSITIVE_INFINITY);
+        Arrays.fill(distB, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+        Arrays.fill(next, -1);
+
+        distF[startIndex] = 0;
+        distB[endIndex] = 0;
+        IndexedMinHeap heapF = new IndexedMinHeap(n);
+        IndexedMinHeap heapB = new IndexedMinHeap(n);
+        heapF.offer(startIndex, 0);
+        heapB.offer(endIndex, 0);
+
+        double best = startIndex == endIndex ? 0 : Double.POSITIVE_INFINITY;
+        int meet = startIndex == endIndex ? startIndex : -1;
+
+        while (!heapF.isEmpty() && !heapB.isEmpty()) {
+            // no path through an unsettled vertex can beat best any more
+            if (heapF.peekKey() + heapB.peekKey() >= best) break;
+
+            if (heapF.peekKey() <= heapB.peekKey()) {
+                int u = heapF.poll();
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int v = graph.getTarget(e);
+                    double d = distF[u] + weights[e];
+                    if (d < distF[v]) {
+                        distF[v] = d;
+                        prev[v] = u;
+                        heapF.offer(v, d);
+                    }
+                    if (d + distB[v] < best) {
+                        best = d + distB[v];
+                        meet = v;
+                    }
+                }
+            } else {
+                int u = heapB.poll();
+                for (int e = reverse.edgeStart(u); e < reverse.edgeEnd(u); e++) {
+                    int v = reverse.getTarget(e);
+                    double d = distB[u] + reverseWeights[e];
+                    if (d < distB[v]) {
+                        distB[v] = d;
+                        next[v] = u;
+                        heapB.offer(v, d);
+                    }
+                    if (d + distF[v] < best) {
+                        best = d + distF[v];
+                        meet = v;
+                    }
+                }
+            }
+        }
+
+        if (meet == -1) return Collections.emptyList();
+
+        List<V> path = new ArrayList<>();
+        for (int at = meet; at != -1; at = prev[at]) {
+            path.add(graph.getVertex(at));
+        }
+        Collections.reverse(path);
+        for (int at = next[meet]; at != -1; at = next[at]) {
+            path.add(graph.getVertex(at));
+        }
+        return path;
+    }
 }
@@ -0,0 +1,168 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+// Level-synchronous BFS that switches between two kinds of step (Beamer et al.):
+// top-down expands every frontier vertex's out-edges, bottom-up lets every
+// unvisited vertex look for a parent among its in-edges and stop at the first
+// hit. Bottom-up wins when the frontier is a large part of the graph. Both
+// steps run in parallel over chunks; visited sets are bitsets of longs.
+public class DirectionOptimizingBfs {
+    // switch to bottom-up once frontier edges exceed unexplored edges / ALPHA,
+    // back to top-down once the frontier drops below n / BETA vertices
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+    // below this many vertices a plain sequential BFS is faster
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+    private static final int TOP_DOWN_CHUNK = 1 << 10;
+    private static final int BOTTOM_UP_WORDS = 1 << 4; // 64 vertices per word
+
+    private DirectionOptimizingBfs() {
+    }
+
+    // Vertices come out level by level; within a level the order is not
+    // that of the sequential bfs, and neither is the choice among parents
+    // at the same depth
+    public static <V> AbstractGraph<V>.Tree bfs(CsrGraph<V> graph, int root) {
+        int n = graph.getSize();
+        if (n < PARALLEL_THRESHOLD) return graph.bfs(root);
+
+        CsrGraph<V> reverse = graph.getReverse();
+        int words = (n + 63) >>> 6;
+        int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+        AtomicLongArray visited = new AtomicLongArray(words);
+        visited.set(root >>> 6, 1L << root);
+
+        int[] order = new int[n];
+        int ordered = 0;
+        order[ordered++] = root;
+
+        int[] frontier = {root};
+        long[] frontierBits = null;
+        long unexploredEdges = graph.getEdgeCount() - graph.getDegree(root);
+        boolean bottomUp = false;
+
+        while (frontier.length > 0) {
+            long frontierEdges = 0;
+            for (int u : frontier) {
+                frontierEdges += graph.getDegree(u);
+            }
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+            } else if (bottomUp && frontier.length < n / BETA) {
+                bottomUp = false;
+            }
+
+            int[] next;
+            if (bottomUp) {
+                if (frontierBits == null) frontierBits = new long[words];
+                else Arrays.fill(frontierBits, 0);
+                for (int u : frontier) {
+                    frontierBits[u >>> 6] |= 1L << u;
+                }
+                next = bottomUpStep(reverse, frontierBits, visited, parent, words);
+            } else {
+                next = topDownStep(graph, frontier, visited, parent);
+            }
+
+            for (int v : next) {
+                unexploredEdges -= graph.getDegree(v);
+            }
+            System.arraycopy(next, 0, order, ordered, next.length);
+            ordered += next.length;
+            frontier = next;
+        }
+
+        List<Integer> searchOrder = new ArrayList<>(ordered);
+        for (int i = 0; i < ordered; i++) {
+            searchOrder.add(order[i]);
+        }
+        return graph.new Tree(root, parent, searchOrder);
+    }
+
+    // Each chunk of the frontier claims unvisited targets with a CAS on the
+    // visited word, so every vertex gets exactly one parent
+    private static int[] topDownStep(CsrGraph<?> graph, int[] frontier, AtomicLongArray visited, int[] parent) {
+        int chunks = (frontier.length + TOP_DOWN_CHUNK - 1) / TOP_DOWN_CHUNK;
+        int[][] found = new int[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int[] local = new int[16];
+            int size = 0;
+            int end = Math.min(frontier.length, (c + 1) * TOP_DOWN_CHUNK);
+            for (int i = c * TOP_DOWN_CHUNK; i < end; i++) {
+                int u = frontier[i];
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int w = graph.getTarget(e);
+                    if (claim(visited, w)) {
+                        parent[w] = u;
+                        if (size == local.length) local = Arrays.copyOf(local, size * 2);
+                        local[size++] = w;
+                    }
+                }
+            }
+            found[c] = Arrays.copyOf(local, size);
+        });
+        return concat(found);
+    }
+
+    // Each chunk owns a run of visited words, so setting bits needs no CAS
+    private static int[] bottomUpStep(CsrGraph<?> reverse, long[] frontierBits, AtomicLongArray visited, int[] parent, int words) {
+        int n = reverse.getSize();
+        int chunks = (words + BOTTOM_UP_WORDS - 1) / BOTTOM_UP_WORDS;
+        int[][] found = new int[chunks][];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int[] local = new int[16];
+            int size = 0;
+            int endWord = Math.min(words, (c + 1) * BOTTOM_UP_WORDS);
+            for (int word = c * BOTTOM_UP_WORDS; word < endWord; word++) {
+                long seen = visited.get(word);
+                long added = 0;
+                int base = word << 6;
+                for (int bit = 0; bit < 64 && base + bit < n; bit++) {
+                    if ((seen & (1L << bit)) != 0) continue;
+                    int v = base + bit;
+                    for (int e = reverse.edgeStart(v); e < reverse.edgeEnd(v); e++) {
+                        int u = reverse.getTarget(e);
+                        if ((frontierBits[u >>> 6] & (1L << u)) != 0) {
+                            parent[v] = u;
+                            added |= 1L << bit;
+                            if (size == local.length) local = Arrays.copyOf(local, size * 2);
+                            local[size++] = v;
+                            break;
+                        }
+                    }
+                }
+                // frontierBits is separate from visited, so vertices found in
+                // this step do not become parents until the next level
+                if (added != 0) visited.set(word, seen | added);
+            }
+            found[c] = Arrays.copyOf(local, size);
+        });
+        return concat(found);
+    }
+
+    private static boolean claim(AtomicLongArray visited, int v) {
+        int word = v >>> 6;
+        long bit = 1L << v;
+        while (true) {
+            long seen = visited.get(word);
+            if ((seen & bit) != 0) return false;
+            if (visited.compareAndSet(word, seen, seen | bit)) return true;
+        }
+    }
+
+    private static int[] concat(int[][] parts) {
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] result = new int[total];
+        int at = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, at, part.length);
+            at += part.length;
+        }
+        return result;
+    }
+}
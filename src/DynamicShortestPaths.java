@@ -0,0 +1,277 @@
+import java.util.*;
+
+// Shortest paths from one source over a WeightedGraph that keep up with
+// route edits. After the edges from u to v are added, removed or given new
+// weights, update(u, v) repairs only the part of the tree that can change,
+// in the manner of Ramalingam and Reps:
+//  - a shorter u -> v can only lower distances, so a Dijkstra search starts
+//    at v and goes no further than the vertices it improves
+//  - a longer or missing tree edge u -> v can only raise distances below v
+//    in the tree. Those vertices are cut off, seeded with their best edge
+//    from the rest of the tree and settled again among themselves.
+// Anything else is answered by searching from scratch: adding or removing
+// an airport (a new structure version), or a call to update that does not
+// come exactly one edit after the last sync, since then some edit was never
+// reported. Run the class for a self-check against a full Dijkstra search:
+//   java DynamicShortestPaths [airports] [edits] [seed]
+public class DynamicShortestPaths<V> {
+    private final WeightedGraph<V> graph;
+    private final int sourceId; // stable id, since removals renumber vertices
+    private final boolean byTime;
+    private double[] dist;   // infinity where unreachable
+    private int[] parent;    // previous vertex on the path, -1 for the source and unreachable vertices
+    private int[] mark;      // == epoch for vertices cut off by the current repair
+    private int epoch;
+    private IndexedMinHeap heap;
+    private long syncedEdits;     // graph.getEditCount() the arrays match
+    private long syncedStructure; // graph.getStructureVersion() the arrays match
+    private int lastUpdateSize;
+
+    // mode = "time" or "cost"
+    public DynamicShortestPaths(WeightedGraph<V> graph, V source, String mode) {
+        int s = graph.getIndex(source);
+        if (s == -1) throw new IllegalArgumentException("Unknown vertex " + source);
+        this.graph = graph;
+        this.sourceId = graph.getId(s);
+        this.byTime = mode.equals("time");
+        recompute();
+    }
+
+    // Index of the source, or -1 once it has been removed from the graph
+    public int getSourceIndex() {
+        return graph.getIndexOfId(sourceId);
+    }
+
+    public boolean isReachable(int v) {
+        return getDistance(v) != Double.POSITIVE_INFINITY;
+    }
+
+    public double getDistance(int v) {
+        ensureCurrent();
+        return dist[v];
+    }
+
+    public int getParent(int v) {
+        ensureCurrent();
+        return parent[v];
+    }
+
+    // Vertices from the source to v; empty if v cannot be reached
+    public List<V> getPath(int v) {
+        if (!isReachable(v)) return Collections.emptyList();
+        List<V> path = new ArrayList<>();
+        for (int at = v; at != -1; at = parent[at]) {
+            path.add(graph.getVertex(at));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // The path with both totals, using the lighter edge wherever two
+    // airports have more than one route between them
+    public Route<V> getRoute(int v) {
+        List<V> path = getPath(v);
+        double time = 0;
+        double cost = 0;
+        for (int at = v; !path.isEmpty() && parent[at] != -1; at = parent[at]) {
+            WeightedGraph.Edge best = null;
+            for (WeightedGraph.Edge e : graph.getEdges(parent[at])) {
+                if (e.to == at && (best == null || weight(e) < weight(best))) best = e;
+            }
+            time += best.time;
+            cost += best.cost;
+        }
+        return new Route<>(path, time, cost);
+    }
+
+    // Vertices whose distance the last update had to settle again
+    public int getLastUpdateSize() {
+        return lastUpdateSize;
+    }
+
+    // Call after each change to the edges from -> to: added, removed or reweighted
+    public void update(int from, int to) {
+        if (graph.getEditCount() == syncedEdits) return; // already caught up by a query
+        if (graph.getEditCount() != syncedEdits + 1 || graph.getStructureVersion() != syncedStructure
+                || getSourceIndex() == -1) {
+            recompute();
+            return;
+        }
+        lastUpdateSize = 0;
+        double w = lightest(from, to);
+
+        // the tree edge into to got longer or went away: everything below it may be further now
+        if (parent[to] == from && dist[from] + w > dist[to]) raiseSubtree(to);
+
+        // a shorter way into to can only bring things closer
+        if (dist[from] + w < dist[to]) {
+            dist[to] = dist[from] + w;
+            parent[to] = from;
+            heap.offer(to, dist[to]);
+            settle();
+        }
+        syncedEdits = graph.getEditCount();
+    }
+
+    private void raiseSubtree(int root) {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            epoch = 1;
+        }
+
+        // the subtree, found by following out-edges that are also tree edges
+        List<Integer> cut = new ArrayList<>();
+        cut.add(root);
+        mark[root] = epoch;
+        for (int i = 0; i < cut.size(); i++) {
+            int u = cut.get(i);
+            for (WeightedGraph.Edge e : graph.getEdges(u)) {
+                if (parent[e.to] == u && mark[e.to] != epoch) {
+                    mark[e.to] = epoch;
+                    cut.add(e.to);
+                }
+            }
+        }
+        for (int v : cut) {
+            dist[v] = Double.POSITIVE_INFINITY;
+            parent[v] = -1;
+        }
+
+        // best way in from outside the subtree, whose distances still hold
+        for (int v : cut) {
+            for (int p : graph.getIncoming(v)) {
+                if (mark[p] == epoch || dist[p] == Double.POSITIVE_INFINITY) continue;
+                double d = dist[p] + lightest(p, v);
+                if (d < dist[v]) {
+                    dist[v] = d;
+                    parent[v] = p;
+                }
+            }
+            if (dist[v] != Double.POSITIVE_INFINITY) heap.offer(v, dist[v]);
+        }
+        settle();
+    }
+
+    // Dijkstra from whatever is queued; only vertices that improve are queued
+    private void settle() {
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            lastUpdateSize++;
+            for (WeightedGraph.Edge e : graph.getEdges(u)) {
+                double d = dist[u] + weight(e);
+                if (d < dist[e.to]) {
+                    dist[e.to] = d;
+                    parent[e.to] = u;
+                    heap.offer(e.to, d);
+                }
+            }
+        }
+    }
+
+    private void ensureCurrent() {
+        if (graph.getEditCount() != syncedEdits) recompute();
+    }
+
+    private void recompute() {
+        int n = graph.getSize();
+        dist = new double[n];
+        parent = new int[n];
+        mark = new int[n];
+        epoch = 0;
+        heap = new IndexedMinHeap(n);
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+        lastUpdateSize = 0;
+
+        int s = getSourceIndex();
+        if (s != -1) {
+            dist[s] = 0;
+            heap.offer(s, 0);
+            settle();
+        }
+        syncedEdits = graph.getEditCount();
+        syncedStructure = graph.getStructureVersion();
+    }
+
+    // Weight of the lightest edge from -> to, infinity if there is none
+    private double lightest(int from, int to) {
+        double best = Double.POSITIVE_INFINITY;
+        for (WeightedGraph.Edge e : graph.getEdges(from)) {
+            if (e.to == to) best = Math.min(best, weight(e));
+        }
+        return best;
+    }
+
+    private double weight(WeightedGraph.Edge e) {
+        return byTime ? e.time : e.cost;
+    }
+
+    // Applies random route edits to a generated network, and after each one
+    // compares every distance, and one route's totals, with a full search.
+    // Now and then an edit goes unreported, or an airport is removed and
+    // another added so the count stays the same, to check those rebuild.
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        Random random = new Random(seed);
+        int mismatches = 0;
+        long updates = 0;
+        long settled = 0;
+        for (String shape : GraphGenerator.SHAPES) {
+            WeightedGraph<String> graph = GraphGenerator.generate(shape, n, seed).toWeighted();
+            for (String mode : new String[]{"time", "cost"}) {
+                DynamicShortestPaths<String> paths = new DynamicShortestPaths<>(graph, graph.getVertex(random.nextInt(n)), mode);
+                for (int step = 0; step < steps; step++) {
+                    if (random.nextInt(50) == 0) {
+                        int v = random.nextInt(graph.getSize());
+                        if (v != paths.getSourceIndex()) {
+                            graph.removeVertex(v);
+                            graph.addVertex(shape + " " + mode + " " + step);
+                        }
+                    }
+                    if (random.nextInt(20) == 0) randomEdit(graph, random); // never reported
+                    int[] edited = randomEdit(graph, random);
+                    if (edited == null) continue;
+                    paths.update(edited[0], edited[1]);
+                    updates++;
+                    settled += paths.getLastUpdateSize();
+                    if (!matchesDijkstra(graph, paths, mode, random)) mismatches++;
+                }
+            }
+        }
+        System.out.printf("%d updates, %d mismatches, %.1f vertices settled per update%n",
+                updates, mismatches, (double) settled / updates);
+        if (mismatches > 0) System.exit(1);
+    }
+
+    // Adds, removes or reweights the edges between two random airports;
+    // returns them, or null if nothing changed
+    private static int[] randomEdit(WeightedGraph<String> graph, Random random) {
+        int from = random.nextInt(graph.getSize());
+        List<WeightedGraph.Edge> edges = graph.getEdges(from);
+        int kind = random.nextInt(3);
+        if (kind == 0 || edges.isEmpty()) {
+            int to = random.nextInt(graph.getSize());
+            graph.addEdge(from, to, 1 + random.nextInt(100), 1 + random.nextInt(200));
+            return new int[]{from, to};
+        }
+        int to = edges.get(random.nextInt(edges.size())).to;
+        if (kind == 1) graph.removeEdge(from, to);
+        else graph.setWeights(from, to, 1 + random.nextInt(100), 1 + random.nextInt(200));
+        return new int[]{from, to};
+    }
+
+    private static boolean matchesDijkstra(WeightedGraph<String> graph, DynamicShortestPaths<String> paths,
+                                           String mode, Random random) {
+        double[] expected = new Dijkstra<>(graph).getDistances(paths.getSourceIndex(), mode);
+        for (int v = 0; v < graph.getSize(); v++) {
+            if (Math.abs(expected[v] - paths.getDistance(v)) > 1e-9
+                    && !(Double.isInfinite(expected[v]) && Double.isInfinite(paths.getDistance(v)))) {
+                return false;
+            }
+        }
+        int target = random.nextInt(graph.getSize());
+        return !paths.isReachable(target) || Math.abs(paths.getRoute(target).getTotal(mode) - expected[target]) <= 1e-9;
+    }
+}
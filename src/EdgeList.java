@@ -0,0 +1,326 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Edges as growable primitive columns, and a parser for the from,to,time,cost
+// text format that reads bytes straight into them: no String per line, no
+// split, no boxing. Weights may have decimals. Blank lines and lines with
+// fewer than four fields are skipped, as the old loader did.
+public class EdgeList {
+    // files are read and parsed this many bytes at a time
+    private static final int REGION_BYTES = 1 << 30;
+    // below this many bytes per chunk, parsing in parallel does not pay off
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final double[] POW10 = new double[23]; // exact powers of ten as doubles
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private int size;
+    private int[] from;
+    private int[] to;
+    private double[] time;
+    private double[] cost;
+
+    public EdgeList() {
+        this(16);
+    }
+
+    public EdgeList(int capacity) {
+        capacity = Math.max(capacity, 1);
+        from = new int[capacity];
+        to = new int[capacity];
+        time = new double[capacity];
+        cost = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getFrom(int i) {
+        return from[i];
+    }
+
+    public int getTo(int i) {
+        return to[i];
+    }
+
+    public double getTime(int i) {
+        return time[i];
+    }
+
+    public double getCost(int i) {
+        return cost[i];
+    }
+
+    public void add(int u, int v, double edgeTime, double edgeCost) {
+        if (size == from.length) grow(size * 2);
+        from[size] = u;
+        to[size] = v;
+        time[size] = edgeTime;
+        cost[size] = edgeCost;
+        size++;
+    }
+
+    public void addAll(EdgeList other) {
+        if (size + other.size > from.length) grow(Math.max(size + other.size, size * 2));
+        System.arraycopy(other.from, 0, from, size, other.size);
+        System.arraycopy(other.to, 0, to, size, other.size);
+        System.arraycopy(other.time, 0, time, size, other.size);
+        System.arraycopy(other.cost, 0, cost, size, other.size);
+        size += other.size;
+    }
+
+    public static EdgeList read(File file, boolean parallel) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            // Positional reads into one heap buffer rather than a mapping: a
+            // mapping lives until GC, and Windows will not let compaction
+            // replace a file that is still mapped
+            ByteBuffer region = ByteBuffer.allocate((int) Math.min(REGION_BYTES, length));
+            EdgeList edges = null;
+            long at = 0; // next byte of the file to read
+            while (at < length) {
+                // the buffer starts with whatever partial line the last region left
+                while (region.hasRemaining() && at < length) {
+                    int read = channel.read(region, at);
+                    if (read < 0) length = at; // the file shrank while we read it
+                    else at += read;
+                }
+                int filled = region.position();
+                // a region ends after its last complete line, unless it is the last one
+                int end = filled;
+                if (at < length) {
+                    while (end > 0 && region.get(end - 1) != '\n') end--;
+                    if (end == 0) throw new IOException("Line longer than " + REGION_BYTES + " bytes in " + file);
+                }
+                EdgeList part;
+                try {
+                    part = parse(region, 0, end, parallel);
+                } catch (IOException e) {
+                    throw new IOException(file + ": " + e.getMessage());
+                }
+                if (edges == null) edges = part;
+                else edges.addAll(part);
+                region.limit(filled).position(end);
+                region.compact();
+            }
+            return edges != null ? edges : new EdgeList();
+        }
+    }
+
+    // Parses bytes [start, end) of buffer, which must hold whole lines
+    public static EdgeList parse(ByteBuffer buffer, int start, int end, boolean parallel) throws IOException {
+        int chunks = parallel ? Math.min(Runtime.getRuntime().availableProcessors() * 4, (end - start) / MIN_CHUNK_BYTES) : 1;
+        try {
+            if (chunks <= 1) {
+                EdgeList edges = new EdgeList((end - start) / 12 + 16);
+                new Cursor(buffer, edges).parse(start, end);
+                return edges;
+            }
+
+            // cut at the first line break at or after each even split point
+            int[] bounds = new int[chunks + 1];
+            bounds[0] = start;
+            bounds[chunks] = end;
+            for (int c = 1; c < chunks; c++) {
+                int at = Math.max(bounds[c - 1], start + (int) ((long) (end - start) * c / chunks));
+                while (at < end && buffer.get(at) != '\n') at++;
+                bounds[c] = Math.min(at + 1, end);
+            }
+
+            EdgeList[] parts = new EdgeList[chunks];
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                parts[c] = new EdgeList((bounds[c + 1] - bounds[c]) / 12 + 16);
+                new Cursor(buffer, parts[c]).parse(bounds[c], bounds[c + 1]);
+            });
+            int total = 0;
+            for (EdgeList part : parts) {
+                total += part.size;
+            }
+            EdgeList edges = new EdgeList(total);
+            for (EdgeList part : parts) {
+                edges.addAll(part);
+            }
+            return edges;
+        } catch (BadNumber e) {
+            throw new IOException("Bad number on line " + lineOf(buffer, start, e.offset));
+        }
+    }
+
+    private void grow(int capacity) {
+        from = Arrays.copyOf(from, capacity);
+        to = Arrays.copyOf(to, capacity);
+        time = Arrays.copyOf(time, capacity);
+        cost = Arrays.copyOf(cost, capacity);
+    }
+
+    // Only worked out on error, so the parser itself need not count lines
+    private static int lineOf(ByteBuffer buffer, int start, int offset) {
+        int line = 1;
+        for (int i = start; i < offset; i++) {
+            if (buffer.get(i) == '\n') line++;
+        }
+        return line;
+    }
+
+    // Unchecked so it can leave the parallel stream; offset is where the bad number starts
+    private static class BadNumber extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int offset;
+
+        BadNumber(int offset) {
+            super(null, null, false, false);
+            this.offset = offset;
+        }
+    }
+
+    // Parses lines with absolute gets; pos is the next byte to read
+    private static class Cursor {
+        private final ByteBuffer buffer;
+        private final EdgeList out;
+        private int pos;
+        private int lineEnd; // '\n' of the current line, or the end of the range
+
+        Cursor(ByteBuffer buffer, EdgeList out) {
+            this.buffer = buffer;
+            this.out = out;
+        }
+
+        void parse(int start, int end) {
+            pos = start;
+            while (pos < end) {
+                lineEnd = pos;
+                int commas = 0;
+                while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                    if (buffer.get(lineEnd) == ',') commas++;
+                    lineEnd++;
+                }
+                if (commas >= 3) {
+                    int u = nextInt();
+                    int v = nextInt();
+                    double edgeTime = nextDouble();
+                    double edgeCost = nextDouble();
+                    out.add(u, v, edgeTime, edgeCost);
+                }
+                pos = lineEnd + 1;
+            }
+        }
+
+        private int nextInt() {
+            skipSpaces();
+            int start = pos;
+            boolean negative = consume('-');
+            if (!negative) consume('+');
+            long value = 0;
+            int digits = 0;
+            while (pos < lineEnd && isDigit(buffer.get(pos))) {
+                value = value * 10 + (buffer.get(pos++) - '0');
+                if (value > Integer.MAX_VALUE + 1L) throw new BadNumber(start);
+                digits++;
+            }
+            if (negative) value = -value;
+            if (digits == 0 || value > Integer.MAX_VALUE) throw new BadNumber(start);
+            endField(start);
+            return (int) value;
+        }
+
+        // [+-]digits[.digits][(e|E)[+-]digits]. Up to 2^53 significant digits
+        // and ten to the +-22 this is exact with one multiply or divide;
+        // anything else goes to Double.parseDouble.
+        private double nextDouble() {
+            skipSpaces();
+            int start = pos;
+            boolean negative = consume('-');
+            if (!negative) consume('+');
+            long mantissa = 0;
+            int exponent = 0;
+            int digits = 0;
+            boolean exact = true;
+            while (pos < lineEnd && isDigit(buffer.get(pos))) {
+                if (mantissa < (1L << 53) / 10) mantissa = mantissa * 10 + (buffer.get(pos) - '0');
+                else exact = false;
+                pos++;
+                digits++;
+            }
+            if (consume('.')) {
+                while (pos < lineEnd && isDigit(buffer.get(pos))) {
+                    if (mantissa < (1L << 53) / 10) {
+                        mantissa = mantissa * 10 + (buffer.get(pos) - '0');
+                        exponent--;
+                    } else {
+                        exact = false;
+                    }
+                    pos++;
+                    digits++;
+                }
+            }
+            if (digits == 0) throw new BadNumber(start);
+            if (pos < lineEnd && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+                pos++;
+                boolean negativeExponent = consume('-');
+                if (!negativeExponent) consume('+');
+                int e = 0;
+                int exponentDigits = 0;
+                while (pos < lineEnd && isDigit(buffer.get(pos))) {
+                    e = Math.min(e * 10 + (buffer.get(pos++) - '0'), 10000);
+                    exponentDigits++;
+                }
+                if (exponentDigits == 0) throw new BadNumber(start);
+                exponent += negativeExponent ? -e : e;
+            }
+            int numberEnd = pos;
+            endField(start);
+
+            double value;
+            if (exact && exponent >= 0 && exponent < POW10.length) {
+                value = mantissa * POW10[exponent];
+            } else if (exact && exponent < 0 && -exponent < POW10.length) {
+                value = mantissa / POW10[-exponent];
+            } else {
+                byte[] text = new byte[numberEnd - start];
+                for (int i = 0; i < text.length; i++) {
+                    text[i] = buffer.get(start + i);
+                }
+                return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+            }
+            return negative ? -value : value;
+        }
+
+        // After a number only spaces may follow before the ',' or the line end
+        private void endField(int start) {
+            skipSpaces();
+            if (pos < lineEnd && !consume(',')) throw new BadNumber(start);
+        }
+
+        private void skipSpaces() {
+            while (pos < lineEnd) {
+                byte b = buffer.get(pos);
+                if (b != ' ' && b != '\t' && b != '\r') break;
+                pos++;
+            }
+        }
+
+        private boolean consume(char c) {
+            if (pos < lineEnd && buffer.get(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+    }
+}
@@ -12,6 +12,8 @@ public interface Graph<V> {
     public boolean addVertex(V v);
     
     public boolean addEdge(int u, int v);
+    public boolean removeVertex(int v);
+    public boolean removeEdge(int u, int v);
     
     AbstractGraph<V>.Tree dfs(int v);
     AbstractGraph<V>.Tree bfs(int v);
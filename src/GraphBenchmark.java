@@ -0,0 +1,164 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+// Micro-benchmarks for graph construction, traversal and routing, so changes
+// to bfs/dfs or Dijkstra.getPath can be measured. Run from the compiled
+// classes with
+//   java GraphBenchmark [size ...]
+// Every case runs on each GraphGenerator shape at each size. It is warmed
+// up first, then timed over several iterations. The report gives the mean
+// time per operation and the bytes the benchmark thread allocated per
+// operation.
+public class GraphBenchmark {
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+    // each iteration repeats the operation for at least this long
+    private static final long ITERATION_NANOS = 100_000_000L;
+    private static final int QUERIES = 64;
+    private static final long SEED = 42;
+
+    // Results are folded in here so the JIT cannot drop the work
+    private static long sink;
+
+    private interface Operation {
+        long run(int i); // i counts the calls, for cycling through inputs
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%-10s %8s %-20s %14s %14s%n", "shape", "vertices", "case", "ns/op", "bytes/op");
+        for (String shape : GraphGenerator.SHAPES) {
+            for (int n : sizes) {
+                run(new Fixture(shape, n, SEED));
+            }
+        }
+        if (sink == 42) System.out.println(); // reads sink
+    }
+
+    private static void run(Fixture f) {
+        measure(f, "build unweighted", i -> new UnweightedGraph<>(f.names, f.edges).getSize());
+        measure(f, "build weighted", i -> f.buildWeighted().getSize());
+        measure(f, "build csr", i -> CsrGraph.fromWeighted(f.weighted).getEdgeCount());
+        measure(f, "bfs", i -> f.unweighted.bfs(f.source(i), f.context));
+        measure(f, "dfs", i -> f.unweighted.dfs(f.source(i), f.context));
+        measure(f, "dijkstra time", i -> f.route(i, "time").size());
+        measure(f, "dijkstra cost", i -> f.route(i, "cost").size());
+        measure(f, "path reconstruction", i -> f.tree.getRoute(f.target(i)).getPath().size());
+    }
+
+    private static void measure(Fixture f, String name, Operation op) {
+        for (int k = 0; k < WARMUP_ITERATIONS; k++) {
+            iterate(op);
+        }
+        long nanos = 0;
+        long bytes = 0;
+        long ops = 0;
+        for (int k = 0; k < ITERATIONS; k++) {
+            long[] result = iterate(op);
+            nanos += result[0];
+            bytes += result[1];
+            ops += result[2];
+        }
+        String perOp = bytes < 0 ? "n/a" : String.valueOf(bytes / ops);
+        System.out.printf("%-10s %8d %-20s %14.1f %14s%n", f.shape, f.n, name, (double) nanos / ops, perOp);
+    }
+
+    // Returns elapsed nanos, allocated bytes (-1 if the JVM cannot tell) and operation count
+    private static long[] iterate(Operation op) {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        int ops = 0;
+        do {
+            sink += op.run(ops++);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        long allocatedAfter = allocatedBytes();
+        long allocated = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+        return new long[]{elapsed, allocated, ops};
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    // One generated graph in every representation the cases need, plus
+    // fixed random queries so every run asks the same questions
+    private static class Fixture {
+        final String shape;
+        final int n;
+        final String[] names;
+        final int[][] edges;
+        final double[] time;
+        final double[] cost;
+        final UnweightedGraph<String> unweighted;
+        final WeightedGraph<String> weighted;
+        final Dijkstra<String> dijkstra;
+        final ShortestPathTree<String> tree;
+        final TraversalContext context = new TraversalContext();
+        final int[] sources = new int[QUERIES];
+        final int[] targets = new int[QUERIES];
+
+        Fixture(String shape, int n, long seed) {
+            this.shape = shape;
+            this.n = n;
+            GraphGenerator generated = GraphGenerator.generate(shape, n, seed);
+            names = generated.getNames().toArray(new String[0]);
+            EdgeList list = generated.getEdges();
+            edges = new int[list.size()][];
+            time = new double[list.size()];
+            cost = new double[list.size()];
+            for (int e = 0; e < list.size(); e++) {
+                edges[e] = new int[]{list.getFrom(e), list.getTo(e)};
+                time[e] = list.getTime(e);
+                cost[e] = list.getCost(e);
+            }
+
+            unweighted = new UnweightedGraph<>(names, edges);
+            weighted = buildWeighted();
+            dijkstra = new Dijkstra<>(weighted);
+            // its own Dijkstra, so the cached tree does not answer the dijkstra cases
+            tree = new Dijkstra<>(weighted).shortestPathTree(0, "time");
+            Random random = new Random(seed);
+            for (int q = 0; q < QUERIES; q++) {
+                sources[q] = random.nextInt(n);
+                targets[q] = random.nextInt(n);
+            }
+        }
+
+        int source(int i) {
+            return sources[i % QUERIES];
+        }
+
+        int target(int i) {
+            return targets[i % QUERIES];
+        }
+
+        WeightedGraph<String> buildWeighted() {
+            WeightedGraph<String> graph = new WeightedGraph<>(names);
+            for (int e = 0; e < edges.length; e++) {
+                graph.addEdge(edges[e][0], edges[e][1], time[e], cost[e]);
+            }
+            return graph;
+        }
+
+        List<String> route(int i, String mode) {
+            return dijkstra.getPath(names[sources[i % QUERIES]], names[targets[i % QUERIES]], mode);
+        }
+    }
+}
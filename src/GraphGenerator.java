@@ -0,0 +1,329 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Synthetic airport networks for load and scale testing. The same shape,
+// size and seed always give the same network, names, positions and
+// weights included. Shapes:
+//   hub        hub-and-spoke: one airport in a hundred is a hub with routes
+//              to a few other hubs, every other airport flies to its
+//              nearest hub and sometimes to a second one
+//   geometric  airports scattered at random, with routes between every
+//              pair closer than a radius picked for about DEGREE neighbours
+//   powerlaw   preferential attachment: each new airport links to
+//              ATTACHMENTS airports picked in proportion to their degree
+//   random     DEGREE routes out of every airport to uniform random ones
+// Routes run both ways except in random. Time grows with distance and cost
+// with time, rounded to whole minutes and ringgit as in the real data.
+//
+// To write a network in the text format plus a snapshot:
+//   java GraphGenerator <shape> <airports> <seed> <directory>
+public class GraphGenerator {
+    public static final String[] SHAPES = {"hub", "geometric", "powerlaw", "random"};
+    // positions cover the map drawn by BFS
+    private static final double WIDTH = 800;
+    private static final double HEIGHT = 600;
+    private static final int DEGREE = 6;
+    private static final int ATTACHMENTS = 3;
+    private static final int HUB_RATIO = 100;
+    private static final int HUB_LINKS = 6;
+
+    private final List<String> names;
+    private final double[][] positions;
+    private final EdgeList edges;
+
+    private GraphGenerator(List<String> names, double[][] positions, EdgeList edges) {
+        this.names = names;
+        this.positions = positions;
+        this.edges = edges;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: java GraphGenerator <" + String.join("|", SHAPES) + "> <airports> <seed> <directory>");
+            System.exit(1);
+        }
+        File directory = new File(args[3]);
+        long start = System.nanoTime();
+        GraphGenerator generated = generate(args[0], Integer.parseInt(args[1]), Long.parseLong(args[2]));
+        generated.writeText(new File(directory, "airports.txt"), new File(directory, "edges.txt"),
+                new File(directory, "positions.txt"));
+        generated.writeSnapshot(new File(directory, "graph.snapshot"));
+        System.out.printf("%d airports, %d routes in %.1f s%n", generated.names.size(), generated.edges.size(),
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    public static GraphGenerator generate(String shape, int n, long seed) {
+        if (n < 2) throw new IllegalArgumentException("Need at least 2 airports, got " + n);
+        Random random = new Random(seed);
+        List<String> names = new ArrayList<>(n);
+        double[][] positions = new double[n][];
+        for (int i = 0; i < n; i++) {
+            names.add("Airport " + i);
+            positions[i] = new double[]{random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT};
+        }
+
+        GraphGenerator generated = new GraphGenerator(names, positions, new EdgeList());
+        switch (shape) {
+            case "hub":
+                generated.hubAndSpoke(random);
+                break;
+            case "geometric":
+                generated.geometric(random);
+                break;
+            case "powerlaw":
+                generated.powerLaw(random);
+                break;
+            case "random":
+                generated.uniform(random);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape + ", expected one of " + Arrays.toString(SHAPES));
+        }
+        return generated;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    // [x, y] per airport
+    public double[][] getPositions() {
+        return positions;
+    }
+
+    public EdgeList getEdges() {
+        return edges;
+    }
+
+    public WeightedGraph<String> toWeighted() {
+        WeightedGraph<String> graph = new WeightedGraph<>(names.toArray(new String[0]));
+        for (int i = 0; i < edges.size(); i++) {
+            graph.addEdge(edges.getFrom(i), edges.getTo(i), edges.getTime(i), edges.getCost(i));
+        }
+        return graph;
+    }
+
+    public CsrGraph<String> toCsr() {
+        return CsrGraph.fromEdgeList(names, edges);
+    }
+
+    // Same formats as src/resources, so BFS can load the files as they are
+    public void writeText(File airportsFile, File edgesFile, File positionsFile) throws IOException {
+        try (Writer writer = open(airportsFile)) {
+            for (String name : names) {
+                writer.write(name);
+                writer.write('\n');
+            }
+        }
+        try (Writer writer = open(positionsFile)) {
+            for (double[] position : positions) {
+                writer.write(position[0] + "," + position[1] + "\n");
+            }
+        }
+        try (Writer writer = open(edgesFile)) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < edges.size(); i++) {
+                line.setLength(0);
+                line.append(edges.getFrom(i)).append(',').append(edges.getTo(i)).append(',');
+                appendAmount(line, edges.getTime(i)).append(',');
+                appendAmount(line, edges.getCost(i)).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    public void writeSnapshot(File file) throws IOException {
+        GraphSnapshot.write(file, toCsr(), positions);
+    }
+
+    private void hubAndSpoke(Random random) {
+        int n = names.size();
+        int hubs = Math.max(2, n / HUB_RATIO);
+        List<NeighbourSet> linked = new ArrayList<>(hubs);
+        for (int h = 0; h < hubs; h++) {
+            linked.add(new NeighbourSet());
+        }
+        for (int h = 0; h < hubs; h++) {
+            for (int k = 0; k < Math.min(HUB_LINKS, hubs - 1); k++) {
+                int other = random.nextInt(hubs);
+                if (other != h && linked.get(h).add(other)) {
+                    linked.get(other).add(h);
+                    route(h, other, random);
+                }
+            }
+        }
+
+        PointGrid grid = new PointGrid(hubs, Math.sqrt(WIDTH * HEIGHT * 2 / hubs)); // about two hubs per cell
+        for (int v = hubs; v < n; v++) {
+            int hub = grid.nearest(positions[v][0], positions[v][1]);
+            route(v, hub, random);
+            if (random.nextInt(3) == 0) {
+                int second = random.nextInt(hubs);
+                if (second != hub) route(v, second, random);
+            }
+        }
+    }
+
+    private void geometric(Random random) {
+        int n = names.size();
+        double radius = Math.sqrt(DEGREE * WIDTH * HEIGHT / (Math.PI * n));
+        PointGrid grid = new PointGrid(n, radius);
+        for (int v = 0; v < n; v++) {
+            double x = positions[v][0];
+            double y = positions[v][1];
+            int cx = grid.cellX(x);
+            int cy = grid.cellY(y);
+            for (int gy = Math.max(cy - 1, 0); gy <= Math.min(cy + 1, grid.rows - 1); gy++) {
+                for (int gx = Math.max(cx - 1, 0); gx <= Math.min(cx + 1, grid.columns - 1); gx++) {
+                    for (int i = grid.start[gy * grid.columns + gx]; i < grid.start[gy * grid.columns + gx + 1]; i++) {
+                        int u = grid.points[i];
+                        if (u > v && distance(u, v) <= radius) route(v, u, random);
+                    }
+                }
+            }
+        }
+    }
+
+    // endpoints holds both ends of every link, so a uniform pick from it is
+    // a pick in proportion to degree
+    private void powerLaw(Random random) {
+        int n = names.size();
+        int seedSize = Math.min(ATTACHMENTS + 1, n);
+        int[] endpoints = new int[2 * (seedSize * seedSize + ATTACHMENTS * n)];
+        int count = 0;
+        for (int u = 0; u < seedSize; u++) {
+            for (int v = u + 1; v < seedSize; v++) {
+                route(u, v, random);
+                endpoints[count++] = u;
+                endpoints[count++] = v;
+            }
+        }
+        int[] picked = new int[ATTACHMENTS];
+        for (int v = seedSize; v < n; v++) {
+            int links = 0;
+            while (links < Math.min(ATTACHMENTS, v)) {
+                int u = endpoints[random.nextInt(count)];
+                boolean again = false;
+                for (int k = 0; k < links; k++) {
+                    again |= picked[k] == u;
+                }
+                if (!again) picked[links++] = u;
+            }
+            for (int k = 0; k < links; k++) {
+                route(v, picked[k], random);
+                endpoints[count++] = v;
+                endpoints[count++] = picked[k];
+            }
+        }
+    }
+
+    private void uniform(Random random) {
+        int n = names.size();
+        for (int v = 0; v < n; v++) {
+            for (int k = 0; k < DEGREE; k++) {
+                int u = random.nextInt(n - 1);
+                if (u >= v) u++; // no loops
+                double time = time(v, u);
+                edges.add(v, u, time, cost(time, random.nextDouble()));
+            }
+        }
+    }
+
+    // Adds u -> v and v -> u with the same time and cost
+    private void route(int u, int v, Random random) {
+        double time = time(u, v);
+        double cost = cost(time, random.nextDouble());
+        edges.add(u, v, time, cost);
+        edges.add(v, u, time, cost);
+    }
+
+    // 20 minutes on the ground plus cruise; about the spread of the real data
+    private double time(int u, int v) {
+        return Math.round(20 + distance(u, v) * 0.2);
+    }
+
+    private static double cost(double time, double fare) {
+        return Math.round(time * (1.5 + fare));
+    }
+
+    private double distance(int u, int v) {
+        return Math.hypot(positions[u][0] - positions[v][0], positions[u][1] - positions[v][1]);
+    }
+
+    private static Writer open(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static StringBuilder appendAmount(StringBuilder line, double value) {
+        return value == Math.rint(value) ? line.append((long) value) : line.append(value);
+    }
+
+    // The first count positions bucketed into square cells, so neighbours
+    // are found by looking at nearby cells only
+    private class PointGrid {
+        final double cell;
+        final int columns;
+        final int rows;
+        final int[] start;  // points of cell c are points[start[c]] .. points[start[c + 1] - 1]
+        final int[] points;
+
+        PointGrid(int count, double cell) {
+            this.cell = cell;
+            columns = Math.max(1, (int) Math.ceil(WIDTH / cell));
+            rows = Math.max(1, (int) Math.ceil(HEIGHT / cell));
+            start = new int[columns * rows + 1];
+            points = new int[count];
+            for (int v = 0; v < count; v++) {
+                start[cellOf(v) + 1]++;
+            }
+            for (int c = 0; c < columns * rows; c++) {
+                start[c + 1] += start[c];
+            }
+            int[] next = Arrays.copyOf(start, columns * rows);
+            for (int v = 0; v < count; v++) {
+                points[next[cellOf(v)]++] = v;
+            }
+        }
+
+        int cellX(double x) {
+            return Math.min((int) (x / cell), columns - 1);
+        }
+
+        int cellY(double y) {
+            return Math.min((int) (y / cell), rows - 1);
+        }
+
+        private int cellOf(int v) {
+            return cellY(positions[v][1]) * columns + cellX(positions[v][0]);
+        }
+
+        // Searches rings of cells outwards. Every point in ring r + 1 is at
+        // least r cells away, so the search stops once that is no nearer.
+        int nearest(double x, double y) {
+            int cx = cellX(x);
+            int cy = cellY(y);
+            int best = -1;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int ring = 0; ring <= Math.max(columns, rows); ring++) {
+                for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                    for (int gx = cx - ring; gx <= cx + ring; gx++) {
+                        boolean onRing = Math.abs(gx - cx) == ring || Math.abs(gy - cy) == ring;
+                        if (!onRing || gx < 0 || gy < 0 || gx >= columns || gy >= rows) continue;
+                        int c = gy * columns + gx;
+                        for (int i = start[c]; i < start[c + 1]; i++) {
+                            int p = points[i];
+                            double d = Math.hypot(positions[p][0] - x, positions[p][1] - y);
+                            if (d < bestDistance) {
+                                bestDistance = d;
+                                best = p;
+                            }
+                        }
+                    }
+                }
+                if (bestDistance <= ring * cell) break;
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Binary image of the airport network, so startup does not have to parse
+// the text files. Each section is an array copied in bulk from a
+// memory-mapped region; only the airport names are decoded.
+//
+// A mapping outlives open until it is garbage collected, and Windows will
+// not replace or delete a file while it is mapped. So snapshots alternate
+// between two files, name and name.1: the newest is the one to open, and
+// writeNext writes the other, then deletes the old one if it can.
+//
+// Layout, big-endian, every section starting on an 8-byte boundary:
+//   header   magic, version, n, m, hasPositions, name bytes (6 ints),
+//            then the last change-log sequence the snapshot includes (long)
+//   names    n + 1 ints (start of each name in the blob), then the UTF-8 blob
+//   offsets  n + 1 ints
+//   targets  m ints
+//   time     m doubles
+//   cost     m doubles
+//   position 2n doubles (x, y per airport), only if hasPositions is 1
+public class GraphSnapshot {
+    private static final int MAGIC = 0x47534E50; // "GSNP"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES + Long.BYTES;
+    // regions are mapped at most this many bytes at a time
+    private static final int MAP_CHUNK = 1 << 30;
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    // every snapshot file this process has mapped; writeNext avoids them
+    private static final Set<File> MAPPED = Collections.synchronizedSet(new HashSet<>());
+
+    private final CsrGraph<String> graph;
+    private final double[][] positions;
+    private final long sequence;
+
+    private GraphSnapshot(CsrGraph<String> graph, double[][] positions, long sequence) {
+        this.graph = graph;
+        this.positions = positions;
+        this.sequence = sequence;
+    }
+
+    public CsrGraph<String> getGraph() {
+        return graph;
+    }
+
+    // [x, y] per airport, or null if the snapshot was written without them
+    public double[][] getPositions() {
+        return positions;
+    }
+
+    // Sequence number of the last ChangeLog record folded into this snapshot
+    public long getSequence() {
+        return sequence;
+    }
+
+    // True if the snapshot exists and is at least as new as every source file
+    public static boolean isFresh(File snapshot, File... sources) {
+        if (!snapshot.isFile()) return false;
+        for (File source : sources) {
+            if (source.lastModified() > snapshot.lastModified()) return false;
+        }
+        return true;
+    }
+
+    // The newer of file and file.1, or file if neither exists
+    public static File latest(File file) {
+        File other = alternate(file);
+        if (!other.isFile()) return file;
+        if (!file.isFile()) return other;
+        return other.lastModified() > file.lastModified() ? other : file;
+    }
+
+    // The file writeNext will write: the slot not in use, unless this
+    // process has mapped it and not the one in use
+    public static File nextSlot(File file) {
+        File latest = latest(file);
+        if (!latest.isFile()) return file;
+        File other = latest.equals(file) ? alternate(file) : file;
+        if (other.isFile() && MAPPED.contains(other.getAbsoluteFile()) && !MAPPED.contains(latest.getAbsoluteFile())) {
+            return latest;
+        }
+        return other;
+    }
+
+    // Writes the next slot and deletes the other one, which fails harmlessly
+    // while it is still mapped; returns the file written
+    public static File writeNext(File file, CsrGraph<String> graph, double[][] positions, long sequence) throws IOException {
+        File next = nextSlot(file);
+        write(next, graph, positions, sequence);
+        (next.equals(file) ? alternate(file) : file).delete();
+        return next;
+    }
+
+    // Deletes the slot latest did not pick, e.g. one left behind because it
+    // was mapped when writeNext replaced it; failures are ignored
+    public static void deleteStale(File file) {
+        (latest(file).equals(file) ? alternate(file) : file).delete();
+    }
+
+    private static File alternate(File file) {
+        return new File(file.getPath() + ".1");
+    }
+
+    public static void write(File file, CsrGraph<String> graph, double[][] positions) throws IOException {
+        write(file, graph, positions, 0);
+    }
+
+    // positions may be null; otherwise it needs one [x, y] per vertex. The
+    // file is written beside the target and moved over it, so a crash leaves
+    // either the old snapshot or the new one.
+    public static void write(File file, CsrGraph<String> graph, double[][] positions, long sequence) throws IOException {
+        int n = graph.getSize();
+        int m = graph.getEdgeCount();
+        if (positions != null && positions.length != n) {
+            throw new IllegalArgumentException(positions.length + " positions for " + n + " vertices");
+        }
+
+        int[] nameStart = new int[n + 1];
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        for (int i = 0; i < n; i++) {
+            byte[] name = graph.getVertex(i).getBytes(StandardCharsets.UTF_8);
+            blob.write(name, 0, name.length);
+            nameStart[i + 1] = blob.size();
+        }
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = graph.edgeEnd(u);
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                targets[e] = graph.getTarget(e);
+            }
+        }
+        double[] flatPositions = null;
+        if (positions != null) {
+            flatPositions = new double[2 * n];
+            for (int i = 0; i < n; i++) {
+                flatPositions[2 * i] = positions[i][0];
+                flatPositions[2 * i + 1] = positions[i][1];
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m)
+                    .putInt(positions != null ? 1 : 0).putInt(blob.size()).putLong(sequence);
+            header.flip();
+            long at = drain(channel, 0, header);
+
+            at = writeInts(channel, align(at), nameStart);
+            at = writeBytes(channel, at, blob.toByteArray());
+            at = writeInts(channel, align(at), offsets);
+            at = writeInts(channel, align(at), targets);
+            at = writeDoubles(channel, align(at), graph.getWeights("time"));
+            at = writeDoubles(channel, align(at), graph.getWeights("cost"));
+            if (flatPositions != null) writeDoubles(channel, align(at), flatPositions);
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static GraphSnapshot open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) throw new EOFException("Snapshot is truncated: " + file);
+            MAPPED.add(file.getAbsoluteFile());
+            ByteBuffer header = mapRead(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IOException("Not a graph snapshot: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            int n = header.getInt();
+            int m = header.getInt();
+            boolean hasPositions = header.getInt() == 1;
+            int blobBytes = header.getInt();
+            long sequence = header.getLong();
+            if (n < 0 || n == Integer.MAX_VALUE || m < 0 || blobBytes < 0) throw new IOException("Corrupt snapshot header: " + file);
+
+            long at = align(HEADER_BYTES);
+            int[] nameStart = readInts(channel, at, n + 1);
+            at += (long) (n + 1) * Integer.BYTES;
+            byte[] blob = readBytes(channel, at, blobBytes);
+            at = align(at + blobBytes);
+            List<String> names = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                if (nameStart[i] < 0 || nameStart[i] > nameStart[i + 1] || nameStart[i + 1] > blobBytes) {
+                    throw new IOException("Corrupt name table in snapshot: " + file);
+                }
+                names.add(new String(blob, nameStart[i], nameStart[i + 1] - nameStart[i], StandardCharsets.UTF_8));
+            }
+
+            int[] offsets = readInts(channel, at, n + 1);
+            at = align(at + (long) (n + 1) * Integer.BYTES);
+            int[] targets = readInts(channel, at, m);
+            at = align(at + (long) m * Integer.BYTES);
+            double[] time = readDoubles(channel, at, m);
+            at += (long) m * Double.BYTES;
+            double[] cost = readDoubles(channel, at, m);
+            at += (long) m * Double.BYTES;
+
+            double[][] positions = null;
+            if (hasPositions) {
+                double[] flat = readDoubles(channel, at, 2 * n);
+                positions = new double[n][];
+                for (int i = 0; i < n; i++) {
+                    positions[i] = new double[]{flat[2 * i], flat[2 * i + 1]};
+                }
+            }
+
+            try {
+                return new GraphSnapshot(CsrGraph.fromArrays(names, offsets, targets, time, cost), positions, sequence);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt snapshot " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static long align(long at) {
+        return (at + 7) & ~7L;
+    }
+
+    // Checked before allocating, so a corrupt count fails instead of running out of memory
+    private static void require(FileChannel channel, long at, long bytes) throws IOException {
+        if (bytes > 0 && at + bytes > channel.size()) throw new EOFException("Snapshot is truncated");
+    }
+
+    private static MappedByteBuffer mapRead(FileChannel channel, long at, long bytes) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, at, bytes);
+    }
+
+    private static byte[] readBytes(FileChannel channel, long at, int count) throws IOException {
+        require(channel, at, count);
+        byte[] values = new byte[count];
+        for (int i = 0; i < count; i += MAP_CHUNK) {
+            int chunk = Math.min(MAP_CHUNK, count - i);
+            mapRead(channel, at + i, chunk).get(values, i, chunk);
+        }
+        return values;
+    }
+
+    private static int[] readInts(FileChannel channel, long at, int count) throws IOException {
+        require(channel, at, (long) count * Integer.BYTES);
+        int[] values = new int[count];
+        int perChunk = MAP_CHUNK / Integer.BYTES;
+        for (int i = 0; i < count; i += perChunk) {
+            int chunk = Math.min(perChunk, count - i);
+            mapRead(channel, at + (long) i * Integer.BYTES, (long) chunk * Integer.BYTES)
+                    .asIntBuffer().get(values, i, chunk);
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(FileChannel channel, long at, int count) throws IOException {
+        require(channel, at, (long) count * Double.BYTES);
+        double[] values = new double[count];
+        int perChunk = MAP_CHUNK / Double.BYTES;
+        for (int i = 0; i < count; i += perChunk) {
+            int chunk = Math.min(perChunk, count - i);
+            mapRead(channel, at + (long) i * Double.BYTES, (long) chunk * Double.BYTES)
+                    .asDoubleBuffer().get(values, i, chunk);
+        }
+        return values;
+    }
+
+    // Positional writes through one reused buffer; each returns the position
+    // after what it wrote.
+    private static long writeBytes(FileChannel channel, long at, byte[] values) throws IOException {
+        return drain(channel, at, ByteBuffer.wrap(values));
+    }
+
+    private static long writeInts(FileChannel channel, long at, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+        int perChunk = WRITE_BUFFER / Integer.BYTES;
+        for (int i = 0; i < values.length; i += perChunk) {
+            int chunk = Math.min(perChunk, values.length - i);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, i, chunk);
+            buffer.limit(chunk * Integer.BYTES);
+            at = drain(channel, at, buffer);
+        }
+        return at;
+    }
+
+    private static long writeDoubles(FileChannel channel, long at, double[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+        int perChunk = WRITE_BUFFER / Double.BYTES;
+        for (int i = 0; i < values.length; i += perChunk) {
+            int chunk = Math.min(perChunk, values.length - i);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(values, i, chunk);
+            buffer.limit(chunk * Double.BYTES);
+            at = drain(channel, at, buffer);
+        }
+        return at;
+    }
+
+    private static long drain(FileChannel channel, long at, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+        return at;
+    }
+}
@@ -11,6 +11,7 @@ import javafx.scene.text.Text;
 import javafx.stage.Stage;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -20,6 +21,8 @@ public class GraphViewer extends Application {
 
     private static final String AIRPORTS_FILE = "src/resources/airports.txt";
     private static final String EDGES_FILE = "src/resources/edges.txt";
+    private static final String SNAPSHOT_FILE = "src/resources/graph.snapshot";
+    private static final String CHANGE_LOG_FILE = "src/resources/changes.log";
 
     private String[] airports;
     private List<int[]> edges = new ArrayList<>();
@@ -47,8 +50,10 @@ public class GraphViewer extends Application {
         // Button Actions
         viewGraphBtn.setOnAction(e -> {
             try {
-                loadAirports();
-                loadEdges();
+                if (!loadSnapshot()) {
+                    loadAirports();
+                    loadEdges();
+                }
                 drawGraph(graphPane);
                 stage.setScene(graphScene);
             } catch (IOException ex) {
@@ -65,6 +70,60 @@ public class GraphViewer extends Application {
         stage.show();
     }
 
+    // Takes airports and edges from the binary snapshot BFS writes plus its
+    // change log, if the snapshot is up to date; false means the text files
+    // have to be read instead
+    private boolean loadSnapshot() {
+        File snapshot = GraphSnapshot.latest(new File(SNAPSHOT_FILE));
+        if (!GraphSnapshot.isFresh(snapshot, new File(AIRPORTS_FILE), new File(EDGES_FILE))) return false;
+        WeightedGraph<String> network;
+        try {
+            GraphSnapshot opened = GraphSnapshot.open(snapshot);
+            CsrGraph<String> graph = opened.getGraph();
+            network = new WeightedGraph<>(graph.getVertices().toArray(new String[0]));
+            for (int from = 0; from < graph.getSize(); from++) {
+                for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+                    network.addEdge(from, graph.getTarget(e), graph.getTime(e), graph.getCost(e));
+                }
+            }
+            // read-only: BFS may be appending to the log while the viewer is open
+            ChangeLog.replay(new File(CHANGE_LOG_FILE), opened.getSequence(), new ChangeLog.Handler() {
+                @Override
+                public void addVertex(String name, double x, double y) {
+                    network.addVertex(name); // positions come from layoutCircle here
+                }
+
+                @Override
+                public void removeVertex(int v) {
+                    network.removeVertex(v);
+                }
+
+                @Override
+                public void addEdge(int from, int to, double time, double cost) {
+                    network.addEdge(from, to, time, cost);
+                }
+
+                @Override
+                public void removeEdge(int from, int to) {
+                    network.removeEdge(from, to);
+                }
+            });
+        } catch (IOException e) {
+            return false;
+        }
+
+        airports = new String[network.getSize()];
+        edges.clear();
+        for (int from = 0; from < network.getSize(); from++) {
+            airports[from] = network.getVertex(from);
+            for (WeightedGraph.Edge edge : network.getEdges(from)) {
+                edges.add(new int[]{from, edge.to});
+            }
+        }
+        layoutCircle();
+        return true;
+    }
+
     private void loadAirports() throws IOException {
         List<String> list = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(AIRPORTS_FILE))) {
@@ -74,8 +133,11 @@ public class GraphViewer extends Application {
             }
         }
         airports = list.toArray(new String[0]);
+        layoutCircle();
+    }
 
-        // auto-generate circular layout
+    // auto-generate circular layout
+    private void layoutCircle() {
         positions = new double[airports.length][2];
         double centerX = 400, centerY = 300, radius = 200;
         for (int i = 0; i < airports.length; i++) {
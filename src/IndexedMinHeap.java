@@ -0,0 +1,119 @@
+import java.util.*;
+
+// Binary min-heap over the ids 0 .. capacity - 1 with a double key per id.
+// pos[id] is the heap slot of id, or -1 when id is not in the heap, so
+// decrease-key is a sift-up from a known slot instead of a duplicate push.
+public class IndexedMinHeap {
+    private int[] heap;
+    private int[] pos;
+    private double[] keys;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        pos = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return id < pos.length && pos[id] != -1;
+    }
+
+    public double getKey(int id) {
+        return keys[id];
+    }
+
+    public double peekKey() {
+        return keys[heap[0]];
+    }
+
+    // Inserts id, or lowers its key if it is already queued with a larger one.
+    // Returns false if id is queued with a key that is not larger.
+    public boolean offer(int id, double key) {
+        if (id >= pos.length) grow(Math.max(id + 1, pos.length * 2));
+        if (pos[id] == -1) {
+            heap[size] = id;
+            pos[id] = size;
+            keys[id] = key;
+            siftUp(size++);
+            return true;
+        }
+        if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(pos[id]);
+            return true;
+        }
+        return false;
+    }
+
+    // Removes and returns the id with the smallest key
+    public int poll() {
+        int top = heap[0];
+        pos[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    // Empties the heap in O(size), so one instance can be reused across searches
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void grow(int capacity) {
+        int old = pos.length;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        pos = Arrays.copyOf(pos, capacity);
+        Arrays.fill(pos, old, capacity, -1);
+    }
+
+    private void siftUp(int i) {
+        int id = heap[i];
+        double key = keys[id];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (keys[p] <= key) break;
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        double key = keys[id];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) child = right;
+            int c = heap[child];
+            if (key <= keys[c]) break;
+            heap[i] = c;
+            pos[c] = i;
+            i = child;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+}
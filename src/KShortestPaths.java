@@ -0,0 +1,245 @@
+import java.util.*;
+
+// Yen's k shortest loopless paths. One shortest-path tree towards end is
+// built per query and reused three ways: it gives the first path directly,
+// it is an exact A* heuristic for every spur search (removing edges can only
+// make distances longer), and a spur whose tree path avoids everything that
+// is blocked needs no search at all.
+// Parallel routes between two airports count as one, the lightest for the
+// mode, so no two results visit the same airports in the same order.
+public class KShortestPaths<V> {
+    private final CsrGraph<V> graph;
+
+    // spur search scratch, reset by bumping epoch
+    private final double[] dist;
+    private final int[] prev;
+    private final int[] prevEdge;
+    private final int[] seen;
+    private final int[] blockedVertex;
+    private final int[] blockedEdge;
+    private final IndexedMinHeap heap;
+    private int epoch;
+
+    public KShortestPaths(WeightedGraph<V> graph) {
+        this(CsrGraph.fromWeighted(graph));
+    }
+
+    public KShortestPaths(CsrGraph<V> graph) {
+        this.graph = graph;
+        int n = graph.getSize();
+        dist = new double[n];
+        prev = new int[n];
+        prevEdge = new int[n];
+        seen = new int[n];
+        blockedVertex = new int[n];
+        blockedEdge = new int[graph.getEdgeCount()];
+        heap = new IndexedMinHeap(n);
+    }
+
+    // Up to k loopless routes from start to end, shortest by mode first
+    public List<Route<V>> getRoutes(V start, V end, String mode, int k) {
+        int startIndex = graph.getIndex(start);
+        int endIndex = graph.getIndex(end);
+
+        if (startIndex == -1 || endIndex == -1 || k <= 0) return Collections.emptyList();
+
+        double[] weights = graph.getWeights(mode);
+        ShortestPathTree<V> reverse = new Dijkstra<>(graph.getReverse()).shortestPathTree(endIndex, mode);
+        if (!reverse.isReachable(startIndex)) return Collections.emptyList();
+
+        // Tree edge out of every vertex that can reach end: the lightest edge
+        // to its parent in the reverse search. Those parents form a real tree
+        // even where zero weights tie, which picking any edge with
+        // weight + toEnd equal to the vertex's own distance does not.
+        int n = graph.getSize();
+        double[] toEnd = new double[n];
+        int[] treeEdge = new int[n];
+        Arrays.fill(treeEdge, -1);
+        for (int u = 0; u < n; u++) {
+            toEnd[u] = reverse.getDistance(u);
+            if (u != endIndex && reverse.isReachable(u)) treeEdge[u] = lightestEdge(u, reverse.getParent(u), weights);
+        }
+
+        List<Candidate> accepted = new ArrayList<>();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble((Candidate c) -> c.length));
+        Set<List<Integer>> known = new HashSet<>(); // vertex sequences already found
+
+        int[] first = treePath(startIndex, endIndex, treeEdge, new int[0], 0);
+        accepted.add(new Candidate(first, toEnd[startIndex], 0));
+        known.add(key(vertices(startIndex, first)));
+
+        while (accepted.size() < k) {
+            Candidate last = accepted.get(accepted.size() - 1);
+            int[] vertices = vertices(startIndex, last.edges);
+
+            // Lawler: spurs before the deviation point were tried when the
+            // path this one deviated from was expanded
+            double rootLength = 0;
+            for (int i = 0; i < last.deviation; i++) {
+                rootLength += weights[last.edges[i]];
+            }
+
+            for (int i = last.deviation; i < last.edges.length; i++) {
+                int spur = vertices[i];
+                epoch++;
+                for (int j = 0; j < i; j++) {
+                    blockedVertex[vertices[j]] = epoch;
+                }
+                for (Candidate c : accepted) {
+                    if (c.edges.length > i && samePrefix(c.edges, last.edges, i)) {
+                        // and every parallel edge, or the spur just takes another copy
+                        int next = graph.getTarget(c.edges[i]);
+                        for (int e = graph.edgeStart(spur); e < graph.edgeEnd(spur); e++) {
+                            if (graph.getTarget(e) == next) blockedEdge[e] = epoch;
+                        }
+                    }
+                }
+
+                int[] path = spurPath(spur, endIndex, weights, toEnd, treeEdge, last.edges, i);
+                if (path != null) {
+                    List<Integer> pathKey = key(vertices(startIndex, path));
+                    if (known.add(pathKey)) {
+                        double length = rootLength;
+                        for (int j = i; j < path.length; j++) {
+                            length += weights[path[j]];
+                        }
+                        candidates.add(new Candidate(path, length, i));
+                    }
+                }
+                rootLength += weights[last.edges[i]];
+            }
+
+            if (candidates.isEmpty()) break;
+            accepted.add(candidates.poll());
+        }
+
+        List<Route<V>> routes = new ArrayList<>(accepted.size());
+        for (Candidate c : accepted) {
+            routes.add(toRoute(startIndex, c.edges));
+        }
+        return routes;
+    }
+
+    // Root edges[0 .. i) followed by the shortest way from spur to end that
+    // avoids blocked vertices and edges, or null if there is none
+    private int[] spurPath(int spur, int end, double[] weights, double[] toEnd, int[] treeEdge, int[] root, int i) {
+        if (treePathIsClear(spur, end, treeEdge)) {
+            return treePath(spur, end, treeEdge, root, i);
+        }
+
+        heap.clear();
+        dist[spur] = 0;
+        seen[spur] = epoch;
+        heap.offer(spur, toEnd[spur]);
+
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            if (u == end) break;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.getTarget(e);
+                if (blockedVertex[v] == epoch || (u == spur && blockedEdge[e] == epoch)) continue;
+                if (toEnd[v] == Double.POSITIVE_INFINITY) continue;
+                double d = dist[u] + weights[e];
+                if (seen[v] != epoch || d < dist[v]) {
+                    seen[v] = epoch;
+                    dist[v] = d;
+                    prev[v] = u;
+                    prevEdge[v] = e;
+                    heap.offer(v, d + toEnd[v]);
+                }
+            }
+        }
+        if (seen[end] != epoch) return null;
+
+        int hops = 0;
+        for (int at = end; at != spur; at = prev[at]) {
+            hops++;
+        }
+        int[] path = Arrays.copyOf(root, i + hops);
+        int slot = path.length;
+        for (int at = end; at != spur; at = prev[at]) {
+            path[--slot] = prevEdge[at];
+        }
+        return path;
+    }
+
+    // The tree path from spur is a shortest path even with the blocks in
+    // place if its first edge is not blocked and it meets no blocked vertex
+    private boolean treePathIsClear(int spur, int end, int[] treeEdge) {
+        if (treeEdge[spur] == -1 || blockedEdge[treeEdge[spur]] == epoch) return spur == end;
+        for (int at = graph.getTarget(treeEdge[spur]); at != end; at = graph.getTarget(treeEdge[at])) {
+            if (blockedVertex[at] == epoch || at == spur) return false;
+        }
+        return true;
+    }
+
+    private int[] treePath(int from, int end, int[] treeEdge, int[] root, int i) {
+        int hops = 0;
+        for (int at = from; at != end; at = graph.getTarget(treeEdge[at])) {
+            hops++;
+        }
+        int[] path = Arrays.copyOf(root, i + hops);
+        int slot = i;
+        for (int at = from; at != end; at = graph.getTarget(treeEdge[at])) {
+            path[slot++] = treeEdge[at];
+        }
+        return path;
+    }
+
+    // Lightest edge from -> to for the mode; the first of equal ones
+    private int lightestEdge(int from, int to, double[] weights) {
+        int best = -1;
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+            if (graph.getTarget(e) == to && (best == -1 || weights[e] < weights[best])) best = e;
+        }
+        return best;
+    }
+
+    private int[] vertices(int start, int[] edges) {
+        int[] vertices = new int[edges.length + 1];
+        vertices[0] = start;
+        for (int i = 0; i < edges.length; i++) {
+            vertices[i + 1] = graph.getTarget(edges[i]);
+        }
+        return vertices;
+    }
+
+    private static boolean samePrefix(int[] a, int[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) return false;
+        }
+        return true;
+    }
+
+    private static List<Integer> key(int[] vertices) {
+        List<Integer> key = new ArrayList<>(vertices.length);
+        for (int v : vertices) {
+            key.add(v);
+        }
+        return key;
+    }
+
+    private Route<V> toRoute(int start, int[] edges) {
+        List<V> path = new ArrayList<>(edges.length + 1);
+        path.add(graph.getVertex(start));
+        double time = 0, cost = 0;
+        for (int e : edges) {
+            path.add(graph.getVertex(graph.getTarget(e)));
+            time += graph.getTime(e);
+            cost += graph.getCost(e);
+        }
+        return new Route<>(path, time, cost);
+    }
+
+    private static class Candidate {
+        final int[] edges;
+        final double length;
+        final int deviation; // index of the first edge that differs from its parent path
+
+        Candidate(int[] edges, double length, int deviation) {
+            this.edges = edges;
+            this.length = length;
+            this.deviation = deviation;
+        }
+    }
+}
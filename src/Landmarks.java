@@ -0,0 +1,106 @@
+import java.util.*;
+
+// ALT (A*, landmarks, triangle inequality). For a landmark L the triangle
+// inequality gives d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L),
+// so precomputed distances to and from a few landmarks bound any distance.
+// Unlike AStar.euclidean this works for cost too, where positions mean nothing.
+public class Landmarks<V> {
+    private final CsrGraph<V> graph;
+    private final AStar<V> aStar;
+    private final Table time;
+    private final Table cost;
+
+    public Landmarks(WeightedGraph<V> graph, int count) {
+        this(CsrGraph.fromWeighted(graph), count);
+    }
+
+    // Picks count landmarks per metric and runs two full searches for each
+    public Landmarks(CsrGraph<V> graph, int count) {
+        this.graph = graph;
+        this.aStar = new AStar<>(graph);
+        int k = Math.min(count, graph.getSize());
+        this.time = new Table(graph, "time", k);
+        this.cost = new Table(graph, "cost", k);
+    }
+
+    // mode = "time" for shortest travel time, "cost" for cheapest route
+    public List<V> getPath(V start, V end, String mode) {
+        return aStar.getPath(start, end, mode, getHeuristic(mode));
+    }
+
+    public AStar.Heuristic getHeuristic(String mode) {
+        return mode.equals("time") ? time : cost;
+    }
+
+    public List<V> getLandmarks(String mode) {
+        Table table = mode.equals("time") ? time : cost;
+        List<V> result = new ArrayList<>();
+        for (int l : table.landmarks) {
+            result.add(graph.getVertex(l));
+        }
+        return result;
+    }
+
+    private static class Table implements AStar.Heuristic {
+        private final int k;
+        private final int[] landmarks;
+        // distances for vertex v and landmark i live at v * k + i, so one
+        // estimate reads two short contiguous runs
+        private final double[] from; // d(landmark, v)
+        private final double[] to;   // d(v, landmark)
+
+        Table(CsrGraph<?> graph, String mode, int k) {
+            int n = graph.getSize();
+            this.k = k;
+            landmarks = new int[k];
+            from = new double[n * k];
+            to = new double[n * k];
+
+            Dijkstra<?> forward = new Dijkstra<>(graph);
+            Dijkstra<?> backward = new Dijkstra<>(graph.getReverse());
+
+            // Farthest-point selection: start from the highest-degree vertex,
+            // then repeatedly take the vertex farthest from every chosen one.
+            // Unreachable counts as farthest, so other components get covered.
+            double[] nearest = new double[n];
+            Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+            int next = 0;
+            for (int v = 1; v < n; v++) {
+                if (graph.getDegree(v) > graph.getDegree(next)) next = v;
+            }
+
+            for (int i = 0; i < k; i++) {
+                int l = next;
+                landmarks[i] = l;
+                double[] dFrom = forward.getDistances(l, mode);
+                double[] dTo = backward.getDistances(l, mode);
+                for (int v = 0; v < n; v++) {
+                    from[v * k + i] = dFrom[v];
+                    to[v * k + i] = dTo[v];
+                    nearest[v] = Math.min(nearest[v], dFrom[v] + dTo[v]);
+                }
+                nearest[l] = -1; // never pick the same landmark twice
+
+                next = 0;
+                for (int v = 1; v < n; v++) {
+                    if (nearest[v] > nearest[next]) next = v;
+                }
+            }
+        }
+
+        @Override
+        public double estimate(int v, int target) {
+            double best = 0;
+            int vi = v * k;
+            int ti = target * k;
+            for (int i = 0; i < k; i++) {
+                // terms with an unreachable side bound nothing, skip them
+                double a = from[ti + i] - from[vi + i];
+                double b = to[vi + i] - to[ti + i];
+                if (a > best && a != Double.POSITIVE_INFINITY) best = a;
+                if (b > best && b != Double.POSITIVE_INFINITY) best = b;
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.*;
+
+// Label-setting search over (time, cost) pairs. A vertex keeps every label
+// that no other label at it beats on both criteria, so one search yields all
+// Pareto-optimal routes instead of one route per metric.
+public class MultiCriteriaRouter<V> {
+    private final CsrGraph<V> graph;
+    private final int maxLabelsPerVertex;
+
+    // label store; a label is a partial route ending at labelVertex
+    private int[] labelVertex = new int[64];
+    private int[] labelPrev = new int[64];
+    private double[] labelTime = new double[64];
+    private double[] labelCost = new double[64];
+    private boolean[] labelDead = new boolean[64];
+    private int labelCount;
+
+    // live labels per vertex
+    private int[][] bags;
+    private int[] bagSize;
+
+    public MultiCriteriaRouter(WeightedGraph<V> graph) {
+        this(CsrGraph.fromWeighted(graph));
+    }
+
+    public MultiCriteriaRouter(CsrGraph<V> graph) {
+        this(graph, Integer.MAX_VALUE);
+    }
+
+    // A vertex holding maxLabelsPerVertex labels accepts no more, which keeps
+    // the search bounded on big graphs at the price of possibly missing some
+    // trade-off routes. Integer.MAX_VALUE keeps the frontier exact.
+    public MultiCriteriaRouter(CsrGraph<V> graph, int maxLabelsPerVertex) {
+        this.graph = graph;
+        this.maxLabelsPerVertex = maxLabelsPerVertex;
+    }
+
+    // Every route from start to end that is not both slower and dearer than
+    // another, fastest first
+    public List<Route<V>> getParetoRoutes(V start, V end) {
+        int startIndex = graph.getIndex(start);
+        int endIndex = graph.getIndex(end);
+
+        if (startIndex == -1 || endIndex == -1) return Collections.emptyList();
+
+        // Lower bounds to end for each criterion. They steer the queue, and a
+        // label whose optimistic completion is beaten by a route already found
+        // at end is dropped.
+        Dijkstra<V> backward = new Dijkstra<>(graph.getReverse());
+        double[] timeBound = backward.getDistances(endIndex, "time");
+        double[] costBound = backward.getDistances(endIndex, "cost");
+        if (timeBound[startIndex] == Double.POSITIVE_INFINITY) return Collections.emptyList();
+
+        reset();
+        double[] time = graph.getWeights("time");
+        double[] cost = graph.getWeights("cost");
+
+        IndexedMinHeap heap = new IndexedMinHeap(64);
+        int first = insert(startIndex, -1, 0, 0);
+        heap.offer(first, timeBound[startIndex]);
+
+        while (!heap.isEmpty()) {
+            int label = heap.poll();
+            if (labelDead[label]) continue;
+
+            int u = labelVertex[label];
+            if (u == endIndex) continue;
+            double t = labelTime[label];
+            double c = labelCost[label];
+            if (dominated(endIndex, t + timeBound[u], c + costBound[u])) continue;
+
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.getTarget(e);
+                if (timeBound[v] == Double.POSITIVE_INFINITY) continue; // end is unreachable from v
+                double nt = t + time[e];
+                double nc = c + cost[e];
+                if (dominated(endIndex, nt + timeBound[v], nc + costBound[v])) continue;
+
+                int next = insert(v, label, nt, nc);
+                if (next != -1) heap.offer(next, nt + timeBound[v]);
+            }
+        }
+
+        List<Route<V>> routes = new ArrayList<>();
+        for (int i = 0; i < bagSize[endIndex]; i++) {
+            routes.add(toRoute(bags[endIndex][i]));
+        }
+        return routes;
+    }
+
+    // Fastest route whose cost is at most cap when mode = "time", cheapest
+    // route whose time is at most cap when mode = "cost"; null if none fits
+    public Route<V> getConstrainedRoute(V start, V end, String mode, double cap) {
+        int startIndex = graph.getIndex(start);
+        int endIndex = graph.getIndex(end);
+
+        if (startIndex == -1 || endIndex == -1) return null;
+
+        boolean byTime = mode.equals("time");
+        Dijkstra<V> backward = new Dijkstra<>(graph.getReverse());
+        double[] timeBound = backward.getDistances(endIndex, "time");
+        double[] costBound = backward.getDistances(endIndex, "cost");
+        double[] primaryBound = byTime ? timeBound : costBound;
+        double[] capBound = byTime ? costBound : timeBound;
+        if (capBound[startIndex] > cap) return null; // even the best case breaks the cap
+
+        reset();
+        double[] time = graph.getWeights("time");
+        double[] cost = graph.getWeights("cost");
+
+        // Queue order is primary so far plus its lower bound to end, so the
+        // first label taken off at end is the best one within the cap
+        IndexedMinHeap heap = new IndexedMinHeap(64);
+        int first = insert(startIndex, -1, 0, 0);
+        heap.offer(first, primaryBound[startIndex]);
+
+        while (!heap.isEmpty()) {
+            int label = heap.poll();
+            if (labelDead[label]) continue;
+
+            int u = labelVertex[label];
+            if (u == endIndex) return toRoute(label);
+            double t = labelTime[label];
+            double c = labelCost[label];
+
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.getTarget(e);
+                double nt = t + time[e];
+                double nc = c + cost[e];
+                // a label that cannot reach end within the cap is dropped, as
+                // is everything unreachable (an infinite bound)
+                if ((byTime ? nc : nt) + capBound[v] > cap) continue;
+
+                int next = insert(v, label, nt, nc);
+                if (next != -1) heap.offer(next, (byTime ? nt : nc) + primaryBound[v]);
+            }
+        }
+        return null;
+    }
+
+    private void reset() {
+        int n = graph.getSize();
+        labelCount = 0;
+        bags = new int[n][];
+        bagSize = new int[n];
+    }
+
+    // Adds a label at v unless an existing one is at least as good on both
+    // criteria; kills the existing labels it beats. Returns the new label or -1.
+    private int insert(int v, int prev, double t, double c) {
+        if (dominated(v, t, c)) return -1;
+        if (bags[v] == null) bags[v] = new int[4];
+
+        // the labels beaten by (t, c) are a contiguous run starting at the
+        // first label that is not faster
+        int[] bag = bags[v];
+        int size = bagSize[v];
+        int from = firstNotFaster(v, t);
+        int to = from;
+        while (to < size && labelCost[bag[to]] >= c) {
+            labelDead[bag[to++]] = true;
+        }
+        System.arraycopy(bag, to, bag, from, size - to);
+        bagSize[v] = size - (to - from);
+        if (bagSize[v] >= maxLabelsPerVertex) return -1;
+
+        int id = addLabel(v, prev, t, c);
+        if (bagSize[v] == bag.length) bag = bags[v] = Arrays.copyOf(bag, bag.length * 2);
+        System.arraycopy(bag, from, bag, from + 1, bagSize[v] - from);
+        bag[from] = id;
+        bagSize[v]++;
+        return id;
+    }
+
+    // Bags are sorted by time with strictly falling cost, so the only label
+    // that can beat (t, c) is the slowest one that is still no slower than t
+    private boolean dominated(int v, double t, double c) {
+        int i = firstSlower(v, t) - 1;
+        return i >= 0 && labelCost[bags[v][i]] <= c;
+    }
+
+    private int firstNotFaster(int v, double t) {
+        int lo = 0, hi = bagSize[v];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (labelTime[bags[v][mid]] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int firstSlower(int v, double t) {
+        int lo = 0, hi = bagSize[v];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (labelTime[bags[v][mid]] <= t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int addLabel(int v, int prev, double t, double c) {
+        if (labelCount == labelVertex.length) {
+            int capacity = labelCount * 2;
+            labelVertex = Arrays.copyOf(labelVertex, capacity);
+            labelPrev = Arrays.copyOf(labelPrev, capacity);
+            labelTime = Arrays.copyOf(labelTime, capacity);
+            labelCost = Arrays.copyOf(labelCost, capacity);
+            labelDead = Arrays.copyOf(labelDead, capacity);
+        }
+        int id = labelCount++;
+        labelVertex[id] = v;
+        labelPrev[id] = prev;
+        labelTime[id] = t;
+        labelCost[id] = c;
+        labelDead[id] = false;
+        return id;
+    }
+
+    private Route<V> toRoute(int label) {
+        List<V> path = new ArrayList<>();
+        for (int at = label; at != -1; at = labelPrev[at]) {
+            path.add(graph.getVertex(labelVertex[at]));
+        }
+        Collections.reverse(path);
+        return new Route<>(path, labelTime[label], labelCost[label]);
+    }
+}
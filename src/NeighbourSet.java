@@ -0,0 +1,151 @@
+import java.util.*;
+
+// Set of neighbour indices for one vertex, used for the duplicate check in
+// addEdge. Small sets are a sorted array searched by binary search; past
+// SMALL_LIMIT entries it turns into an open-addressing hash set with linear
+// probing, so hub airports also get O(1) expected lookups.
+public class NeighbourSet {
+    private static final int SMALL_LIMIT = 16;
+    private static final int EMPTY = -1;
+
+    private int[] items;
+    private int size;
+    private boolean hashed;
+
+    public NeighbourSet() {
+        items = new int[4];
+    }
+
+    // Builds the set from distinct indices in one go
+    public NeighbourSet(int[] distinct, int from, int to) {
+        int count = to - from;
+        if (count <= SMALL_LIMIT) {
+            items = Arrays.copyOfRange(distinct, from, Math.max(to, from + 4));
+            Arrays.sort(items, 0, count);
+            size = count;
+        } else {
+            items = emptyTable(tableSize(count));
+            hashed = true;
+            for (int i = from; i < to; i++) {
+                insertHashed(distinct[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int v) {
+        if (!hashed) return Arrays.binarySearch(items, 0, size, v) >= 0;
+        int mask = items.length - 1;
+        for (int slot = mix(v) & mask; items[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (items[slot] == v) return true;
+        }
+        return false;
+    }
+
+    // False if v was already in the set; v must not be negative
+    public boolean add(int v) {
+        if (hashed) {
+            if (contains(v)) return false;
+            if ((size + 1) * 2 > items.length) rehash(items.length * 2);
+            insertHashed(v);
+            return true;
+        }
+
+        int at = Arrays.binarySearch(items, 0, size, v);
+        if (at >= 0) return false;
+        if (size == SMALL_LIMIT) {
+            int[] sorted = items;
+            items = emptyTable(tableSize(size + 1));
+            hashed = true;
+            size = 0;
+            for (int i = 0; i < SMALL_LIMIT; i++) {
+                insertHashed(sorted[i]);
+            }
+            insertHashed(v);
+            return true;
+        }
+        at = -at - 1;
+        if (size == items.length) items = Arrays.copyOf(items, size * 2);
+        System.arraycopy(items, at, items, at + 1, size - at);
+        items[at] = v;
+        size++;
+        return true;
+    }
+
+    // False if v was not in the set
+    public boolean remove(int v) {
+        if (v < 0) return false;
+        if (!hashed) {
+            int at = Arrays.binarySearch(items, 0, size, v);
+            if (at < 0) return false;
+            System.arraycopy(items, at + 1, items, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        int mask = items.length - 1;
+        int slot = mix(v) & mask;
+        while (items[slot] != v) {
+            if (items[slot] == EMPTY) return false;
+            slot = (slot + 1) & mask;
+        }
+        // Backward-shift deletion: pull later entries of the probe run into
+        // the hole unless that would move them before their home slot
+        int hole = slot;
+        for (int next = (hole + 1) & mask; items[next] != EMPTY; next = (next + 1) & mask) {
+            int home = mix(items[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                items[hole] = items[next];
+                hole = next;
+            }
+        }
+        items[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        items = new int[4];
+        size = 0;
+        hashed = false;
+    }
+
+    private void insertHashed(int v) {
+        int mask = items.length - 1;
+        int slot = mix(v) & mask;
+        while (items[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        items[slot] = v;
+        size++;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = items;
+        items = emptyTable(capacity);
+        size = 0;
+        for (int v : old) {
+            if (v != EMPTY) insertHashed(v);
+        }
+    }
+
+    // Power of two with the load factor at most one half
+    private static int tableSize(int count) {
+        return Integer.highestOneBit(Math.max(count, 2) * 2 - 1) * 2;
+    }
+
+    private static int[] emptyTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    // Vertex indices are often consecutive, so spread them before masking
+    private static int mix(int v) {
+        int h = v * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.*;
+
+// A path together with its total travel time and cost
+public class Route<V> {
+    private final List<V> path;
+    private final double time;
+    private final double cost;
+
+    public Route(List<V> path, double time, double cost) {
+        this.path = path;
+        this.time = time;
+        this.cost = cost;
+    }
+
+    public List<V> getPath() {
+        return path;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    // mode = "time" or "cost"
+    public double getTotal(String mode) {
+        return mode.equals("time") ? time : cost;
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + (int) time + "min, RM" + (int) cost + ")";
+    }
+}
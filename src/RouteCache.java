@@ -0,0 +1,114 @@
+import java.util.*;
+
+// Least-recently-used cache of routes keyed by (start, end, mode), for the
+// popular pairs users ask for again and again. Every entry belongs to one
+// graph version (WeightedGraph.getVersion). Asking with a newer version
+// drops the whole cache, because any added or removed route or airport can
+// change any shortest path. Versions only grow, so a caller still holding an
+// older one just misses.
+public class RouteCache<V> {
+    private final int capacity;
+    private final LinkedHashMap<Key, Route<V>> routes;
+    private long version = -1;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public RouteCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        this.capacity = capacity;
+        // access order, so iteration starts at the least recently used entry
+        routes = new LinkedHashMap<Key, Route<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Route<V>> eldest) {
+                if (size() <= RouteCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    // The cached route, or null if there is none for this graph version
+    public synchronized Route<V> get(V start, V end, String mode, long graphVersion) {
+        Route<V> route = isCurrent(graphVersion) ? routes.get(new Key(start, end, mode)) : null;
+        if (route == null) misses++;
+        else hits++;
+        return route;
+    }
+
+    // route may have an empty path, to remember that there is no route
+    public synchronized void put(V start, V end, String mode, long graphVersion, Route<V> route) {
+        if (isCurrent(graphVersion)) routes.put(new Key(start, end, mode), route);
+    }
+
+    public synchronized void clear() {
+        routes.clear();
+    }
+
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Entries dropped to stay within capacity
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // Times the cache was emptied because the graph changed
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RouteCache[" + routes.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + ", invalidations=" + invalidations + "]";
+    }
+
+    private boolean isCurrent(long graphVersion) {
+        if (graphVersion < version) return false;
+        if (graphVersion > version) {
+            if (!routes.isEmpty()) invalidations++;
+            routes.clear();
+            version = graphVersion;
+        }
+        return true;
+    }
+
+    private static class Key {
+        final Object start;
+        final Object end;
+        final String mode;
+
+        Key(Object start, Object end, String mode) {
+            this.start = start;
+            this.end = end;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Objects.equals(start, other.start) && Objects.equals(end, other.end) && mode.equals(other.mode);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Objects.hashCode(start) * 31 + Objects.hashCode(end)) * 31 + mode.hashCode();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.*;
+
+// Result of one full Dijkstra search: the distance to every vertex and the
+// edge each was reached by, kept as plain arrays. Any destination is then
+// answered by walking parents back to the source, with no further search.
+public class ShortestPathTree<V> {
+    private final CsrGraph<V> graph;
+    private final int source;
+    private final String mode;
+    final double[] dist;     // infinity where unreachable
+    final int[] parent;      // previous vertex on the path, -1 for the source and unreachable vertices
+    final int[] parentEdge;  // CSR edge from parent, -1 where parent is
+
+    ShortestPathTree(CsrGraph<V> graph, int source, String mode, double[] dist, int[] parent, int[] parentEdge) {
+        this.graph = graph;
+        this.source = source;
+        this.mode = mode;
+        this.dist = dist;
+        this.parent = parent;
+        this.parentEdge = parentEdge;
+    }
+
+    public CsrGraph<V> getGraph() {
+        return graph;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public boolean isReachable(int v) {
+        return dist[v] != Double.POSITIVE_INFINITY;
+    }
+
+    public double getDistance(int v) {
+        return dist[v];
+    }
+
+    public int getParent(int v) {
+        return parent[v];
+    }
+
+    // Vertices from the source to v; empty if v cannot be reached
+    public List<V> getPath(int v) {
+        if (!isReachable(v)) return Collections.emptyList();
+        List<V> path = new ArrayList<>();
+        for (int at = v; at != -1; at = parent[at]) {
+            path.add(graph.getVertex(at));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public List<V> getPath(V end) {
+        int v = graph.getIndex(end);
+        return v == -1 ? Collections.emptyList() : getPath(v);
+    }
+
+    // The path with both totals, summed over the edges the search took
+    public Route<V> getRoute(int v) {
+        double time = 0;
+        double cost = 0;
+        if (isReachable(v)) {
+            for (int at = v; at != source; at = parent[at]) {
+                time += graph.getTime(parentEdge[at]);
+                cost += graph.getCost(parentEdge[at]);
+            }
+        }
+        return new Route<>(getPath(v), time, cost);
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.*;
+
+// Scratch space for bfs/dfs that is kept between traversals. Visited marks
+// are epoch stamps, so starting a traversal is O(1) instead of clearing
+// arrays, and nothing is allocated once the buffers are large enough.
+public class TraversalContext {
+    private int[] parent = new int[0];
+    private int[] stamp = new int[0];
+    private int[] order = new int[0];  // search order, also the BFS queue
+    private int[] stack = new int[0];  // DFS stack
+    private int[] cursor = new int[0]; // DFS: next neighbour position per vertex
+    private int epoch;
+    private int size;
+    private int root = -1;
+
+    public TraversalContext() {
+    }
+
+    public TraversalContext(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    // Forgets the previous traversal and makes room for n vertices
+    void begin(int n, int root) {
+        ensureCapacity(n);
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        size = 0;
+        this.root = root;
+    }
+
+    // Marks v as reached from p (-1 for the root) and appends it to the order;
+    // false if v was already reached in this traversal
+    boolean visit(int v, int p) {
+        if (stamp[v] == epoch) return false;
+        stamp[v] = epoch;
+        parent[v] = p;
+        order[size++] = v;
+        return true;
+    }
+
+    int[] order() {
+        return order;
+    }
+
+    int[] stack() {
+        return stack;
+    }
+
+    int[] cursor() {
+        return cursor;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    public boolean isVisited(int v) {
+        return v < stamp.length && stamp[v] == epoch;
+    }
+
+    // -1 for the root and for vertices the last traversal did not reach
+    public int getParent(int v) {
+        return isVisited(v) ? parent[v] : -1;
+    }
+
+    // Number of vertices the last traversal reached
+    public int getVisitedCount() {
+        return size;
+    }
+
+    // The i-th vertex in search order
+    public int getVisited(int i) {
+        return order[i];
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= stamp.length) return;
+        parent = new int[n];
+        stamp = new int[n];
+        order = new int[n];
+        stack = new int[n];
+        cursor = new int[n];
+        epoch = 0;
+    }
+}
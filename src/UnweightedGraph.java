@@ -1,59 +1,97 @@
 import java.util.*;
 
 public class UnweightedGraph<V> extends AbstractGraph<V> {
+    // CSR copy for parallelBfs, kept until the graph changes
+    private CsrGraph<V> csr;
+    private long csrEdits;
 
     public UnweightedGraph(V[] vertices, int[][] edges) {
         super(vertices, edges);
     }
 
+    // Each call gets its own buffers, so concurrent or nested calls do not
+    // clash; callers that want reuse pass a TraversalContext of their own
     @Override
     public Tree dfs(int v) {
-        List<Integer> searchOrder = new ArrayList<>();
-        int[] parent = new int[getSize()];
-        Arrays.fill(parent, -1);
-
-        boolean[] visited = new boolean[getSize()];
-        dfs(v, parent, searchOrder, visited);
-
-        return new Tree(v, parent, searchOrder);
+        TraversalContext ctx = new TraversalContext(getSize());
+        dfs(v, ctx);
+        return toTree(ctx);
     }
 
-    private void dfs(int u, int[] parent, List<Integer> searchOrder, boolean[] visited) {
-        visited[u] = true;
-        searchOrder.add(u);
+    // Iterative DFS with the same visiting order as the recursive one; the
+    // result is left in ctx. Returns the number of vertices reached.
+    public int dfs(int v, TraversalContext ctx) {
+        ctx.begin(getSize(), v);
+        int[] stack = ctx.stack();
+        int[] cursor = ctx.cursor();
+        int top = 0;
 
-        for (int w : getNeighbours(u)) {
-            if (!visited[w]) {
-                parent[w] = u;
-                dfs(w, parent, searchOrder, visited);
+        ctx.visit(v, -1);
+        cursor[v] = 0;
+        stack[top++] = v;
+
+        while (top > 0) {
+            int u = stack[top - 1];
+            List<Integer> adjacent = neighbours.get(u);
+            if (cursor[u] == adjacent.size()) {
+                top--;
+                continue;
+            }
+            int w = adjacent.get(cursor[u]++);
+            if (ctx.visit(w, u)) {
+                cursor[w] = 0;
+                stack[top++] = w;
             }
         }
+
+        return ctx.getVisitedCount();
     }
 
     @Override
     public Tree bfs(int v) {
-        List<Integer> searchOrder = new ArrayList<>();
-        int[] parent = new int[getSize()];
-        Arrays.fill(parent, -1);
-
-        boolean[] visited = new boolean[getSize()];
-        Queue<Integer> queue = new LinkedList<>();
-        queue.offer(v);
-        visited[v] = true;
-
-        while (!queue.isEmpty()) {
-            int u = queue.poll();
-            searchOrder.add(u);
-
-            for (int w : getNeighbours(u)) {
-                if (!visited[w]) {
-                    queue.offer(w);
-                    parent[w] = u;
-                    visited[w] = true;
-                }
+        TraversalContext ctx = new TraversalContext(getSize());
+        bfs(v, ctx);
+        return toTree(ctx);
+    }
+
+    // The search order doubles as the queue. Returns the number of vertices reached.
+    public int bfs(int v, TraversalContext ctx) {
+        ctx.begin(getSize(), v);
+        int[] queue = ctx.order();
+        ctx.visit(v, -1);
+
+        for (int head = 0; head < ctx.getVisitedCount(); head++) {
+            int u = queue[head];
+            List<Integer> adjacent = neighbours.get(u);
+            for (int i = 0; i < adjacent.size(); i++) {
+                ctx.visit(adjacent.get(i), u);
             }
         }
 
-        return new Tree(v, parent, searchOrder);
+        return ctx.getVisitedCount();
+    }
+
+    // Parallel direction-optimizing BFS over a CSR copy of this graph; parents
+    // and the order within a level may differ from bfs, depths do not. The
+    // copy, and the reverse the bottom-up steps build on it, are made once
+    // and reused until the graph changes.
+    public synchronized Tree parallelBfs(int v) {
+        if (csr == null || csrEdits != getEditCount()) {
+            csr = CsrGraph.fromGraph(this);
+            csrEdits = getEditCount();
+        }
+        return csr.parallelBfs(v);
+    }
+
+    private Tree toTree(TraversalContext ctx) {
+        int[] parent = new int[getSize()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = ctx.getParent(i);
+        }
+        List<Integer> searchOrder = new ArrayList<>(ctx.getVisitedCount());
+        for (int i = 0; i < ctx.getVisitedCount(); i++) {
+            searchOrder.add(ctx.getVisited(i));
+        }
+        return new Tree(ctx.getRoot(), parent, searchOrder);
     }
 }
@@ -0,0 +1,127 @@
+import java.util.*;
+
+// Vertex list with hash maps from vertex to index, so lookups by vertex or by
+// name are O(1) instead of a List.indexOf scan. When a vertex appears more
+// than once the first index wins, as with indexOf.
+//
+// remove moves the last vertex into the freed slot, so indices stay dense
+// but are not stable across removals. Every vertex also gets an id when it
+// is added that never changes and is never reused.
+public class VertexIndex<V> {
+    private final List<V> vertices = new ArrayList<>();
+    private final Map<V, Integer> index = new HashMap<>();
+    // String.valueOf(vertex) lower-cased, for names typed in by users; built
+    // on the first indexOfIgnoreCase, since bulk loads rarely need it
+    private Map<String, Integer> ignoreCase;
+    private int[] idOf = new int[8];      // index -> id
+    private int[] indexOfId = new int[8]; // id -> index, -1 once removed
+    private int nextId;
+    // set once two vertices share a key; removals then rebuild the maps
+    private boolean duplicates;
+
+    public int size() {
+        return vertices.size();
+    }
+
+    public V get(int i) {
+        return vertices.get(i);
+    }
+
+    public int indexOf(V v) {
+        Integer i = index.get(v);
+        return i == null ? -1 : i;
+    }
+
+    // Index of the first vertex whose name equals name ignoring case, or -1
+    public int indexOfIgnoreCase(String name) {
+        if (ignoreCase == null) {
+            ignoreCase = new HashMap<>();
+            for (int i = 0; i < vertices.size(); i++) {
+                if (ignoreCase.putIfAbsent(key(vertices.get(i)), i) != null) duplicates = true;
+            }
+        }
+        Integer i = ignoreCase.get(key(name));
+        return i == null ? -1 : i;
+    }
+
+    public boolean contains(V v) {
+        return index.containsKey(v);
+    }
+
+    public int getId(int i) {
+        return idOf[i];
+    }
+
+    // Current index of the vertex with this id, or -1 if it was removed
+    public int indexOfId(int id) {
+        return id >= 0 && id < nextId ? indexOfId[id] : -1;
+    }
+
+    // Appends v and returns its index
+    public int add(V v) {
+        int i = vertices.size();
+        vertices.add(v);
+        if (index.putIfAbsent(v, i) != null) duplicates = true;
+        if (ignoreCase != null && ignoreCase.putIfAbsent(key(v), i) != null) duplicates = true;
+
+        if (i == idOf.length) idOf = Arrays.copyOf(idOf, i * 2);
+        if (nextId == indexOfId.length) indexOfId = Arrays.copyOf(indexOfId, nextId * 2);
+        idOf[i] = nextId;
+        indexOfId[nextId++] = i;
+        return i;
+    }
+
+    // Removes the vertex at i and moves the last vertex into its place.
+    // Returns the old index of the moved vertex, which is i itself when i
+    // was the last one.
+    public int remove(int i) {
+        int last = vertices.size() - 1;
+        V removed = vertices.get(i);
+        V moved = vertices.get(last);
+        vertices.set(i, moved);
+        vertices.remove(last);
+        indexOfId[idOf[i]] = -1;
+        if (i != last) {
+            idOf[i] = idOf[last];
+            indexOfId[idOf[i]] = i;
+        }
+
+        if (duplicates) {
+            reindex();
+        } else {
+            index.remove(removed);
+            if (ignoreCase != null) ignoreCase.remove(key(removed));
+            if (i != last) {
+                index.put(moved, i);
+                if (ignoreCase != null) ignoreCase.put(key(moved), i);
+            }
+        }
+        return last;
+    }
+
+    public void clear() {
+        vertices.clear();
+        index.clear();
+        ignoreCase = null;
+        nextId = 0;
+        duplicates = false;
+    }
+
+    private void reindex() {
+        index.clear();
+        ignoreCase = null;
+        duplicates = false;
+        for (int i = 0; i < vertices.size(); i++) {
+            if (index.putIfAbsent(vertices.get(i), i) != null) duplicates = true;
+        }
+    }
+
+    private static String key(Object v) {
+        return String.valueOf(v).toLowerCase(Locale.ROOT);
+    }
+
+    // Read-only view; all changes go through add so the maps stay in step
+    public List<V> asList() {
+        return Collections.unmodifiableList(vertices);
+    }
+}
@@ -1,13 +1,23 @@
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class WeightedGraph<V> {
-    private final List<V> vertices = new ArrayList<>();
+    // shared by every graph, so two graphs never have the same version
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final VertexIndex<V> vertices = new VertexIndex<>();
     private final List<List<Edge>> neighbors = new ArrayList<>();
+    // source of every edge into each vertex, once per edge
+    private final List<List<Integer>> incoming = new ArrayList<>();
+    private long version = VERSIONS.incrementAndGet();
+    private long edits;     // changes made to this graph
+    private long structure; // changes that add, remove or renumber vertices
 
     public WeightedGraph(V[] vertices) {
-        Collections.addAll(this.vertices, vertices);
-        for (int i = 0; i < vertices.length; i++) {
+        for (V v : vertices) {
+            this.vertices.add(v);
             neighbors.add(new ArrayList<>());
+            incoming.add(new ArrayList<>());
         }
     }
 
@@ -15,22 +25,136 @@ public class WeightedGraph<V> {
         return vertices.size();
     }
 
+    // Changes whenever a vertex or edge is added or removed, so anything
+    // derived from the graph, such as cached routes, can tell it is stale
+    public long getVersion() {
+        return version;
+    }
+
+    // Number of changes made to this graph, one per successful add, remove
+    // or reweight, so a listener told about changes can tell if it missed one
+    public long getEditCount() {
+        return edits;
+    }
+
+    // Changes only when a vertex is added or removed; indexes held from
+    // before may then mean a different vertex
+    public long getStructureVersion() {
+        return structure;
+    }
+
     public int getIndex(V v) {
         return vertices.indexOf(v);
     }
 
+    // Index of the first vertex whose name matches ignoring case, or -1
+    public int getIndexIgnoreCase(String name) {
+        return vertices.indexOfIgnoreCase(name);
+    }
+
     public V getVertex(int index) {
         return vertices.get(index);
     }
 
+    // Id given to the vertex when it was added; unlike its index it does
+    // not change when other vertices are removed
+    public int getId(int index) {
+        return vertices.getId(index);
+    }
+
+    // Current index of the vertex with this id, or -1 if it was removed
+    public int getIndexOfId(int id) {
+        return vertices.indexOfId(id);
+    }
+
+    public boolean addVertex(V v) {
+        if (vertices.contains(v)) return false;
+        vertices.add(v);
+        neighbors.add(new ArrayList<>());
+        incoming.add(new ArrayList<>());
+        changed(true);
+        return true;
+    }
+
     public void addEdge(int from, int to, double time, double cost) {
         neighbors.get(from).add(new Edge(to, time, cost));
+        incoming.get(to).add(from);
+        changed(false);
+    }
+
+    // Sets the time and cost of every edge from -> to; false if there is none
+    public boolean setWeights(int from, int to, double time, double cost) {
+        if (from < 0 || from >= getSize()) return false;
+        boolean found = false;
+        for (Edge e : neighbors.get(from)) {
+            if (e.to == to) {
+                e.time = time;
+                e.cost = cost;
+                found = true;
+            }
+        }
+        if (found) changed(false);
+        return found;
+    }
+
+    // Removes every edge from -> to; false if there was none
+    public boolean removeEdge(int from, int to) {
+        if (from < 0 || from >= getSize() || to < 0 || to >= getSize()) return false;
+        if (!neighbors.get(from).removeIf(e -> e.to == to)) return false;
+        incoming.get(to).removeIf(p -> p == from);
+        changed(false);
+        return true;
+    }
+
+    // Removes vertex v and its edges, then moves the last vertex into index v
+    // (swap-with-last). The cost depends on the degrees of v and of the last
+    // vertex, not on the size of the graph. Only the last vertex's index
+    // changes; getId is the same before and after.
+    public boolean removeVertex(int v) {
+        if (v < 0 || v >= getSize()) return false;
+        changed(true);
+        for (Edge e : neighbors.get(v)) {
+            if (e.to != v) incoming.get(e.to).removeIf(p -> p == v);
+        }
+        for (int p : new HashSet<>(incoming.get(v))) {
+            if (p != v) neighbors.get(p).removeIf(e -> e.to == v);
+        }
+
+        int last = vertices.remove(v);
+        neighbors.set(v, neighbors.get(last));
+        incoming.set(v, incoming.get(last));
+        neighbors.remove(last);
+        incoming.remove(last);
+        if (v == last) return true;
+
+        // renumber last to v in the lists that mention it
+        for (Edge e : neighbors.get(v)) {
+            if (e.to == last) e.to = v;
+            incoming.get(e.to).replaceAll(p -> p == last ? v : p);
+        }
+        for (int p : incoming.get(v)) {
+            for (Edge e : neighbors.get(p)) {
+                if (e.to == last) e.to = v;
+            }
+        }
+        return true;
+    }
+
+    private void changed(boolean structural) {
+        version = VERSIONS.incrementAndGet();
+        edits++;
+        if (structural) structure++;
     }
 
     public List<Edge> getEdges(int from) {
         return neighbors.get(from);
     }
 
+    // Source of every edge into to, repeated for parallel edges
+    public List<Integer> getIncoming(int to) {
+        return Collections.unmodifiableList(incoming.get(to));
+    }
+
     public static class Edge {
         public int to;
         public double time;